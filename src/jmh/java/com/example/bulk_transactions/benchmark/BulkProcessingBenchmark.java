@@ -0,0 +1,63 @@
+package com.example.bulk_transactions.benchmark;
+
+import com.example.bulk_transactions.config.BulkProcessingProperties;
+import com.example.bulk_transactions.dto.BulkTransactionRequest;
+import com.example.bulk_transactions.dto.BulkTransactionResponse;
+import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
+import com.example.bulk_transactions.service.BulkTransactionService;
+import com.example.bulk_transactions.service.IdempotencyService;
+import com.example.bulk_transactions.service.TenantScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * End-to-end cost of {@link BulkTransactionService#processBulkTransactions} across batch sizes,
+ * fan-out limits and downstream latencies. With zero latency the numbers are pure pipeline overhead
+ * (validation, operators, metrics); with latency they show how well the concurrency setting hides it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class BulkProcessingBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int batchSize;
+
+    @Param({"16", "256"})
+    private int concurrency;
+
+    @Param({"0", "5"})
+    private long latencyMillis;
+
+    private BulkTransactionRequest request;
+    private BulkTransactionService service;
+
+    @Setup
+    public void setUp() {
+        request = new BulkTransactionRequest("bench-batch", IntStream.range(0, batchSize)
+                .mapToObj(i -> new TransactionServiceRequest("tx-" + i, "src-" + i, "dest-" + i, BigDecimal.TEN))
+                .toList());
+
+        BulkProcessingProperties properties = new BulkProcessingProperties();
+        properties.setConcurrency(concurrency);
+        // every invocation re-sends the same batch, which must not be answered from the idempotency cache
+        properties.getIdempotency().setEnabled(false);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        service = new BulkTransactionService(new StubTransactionServiceClient(Duration.ofMillis(latencyMillis)), meterRegistry,
+                properties, Validation.buildDefaultValidatorFactory().getValidator(),
+                new IdempotencyService(properties, null, meterRegistry), new TenantScheduler(properties, meterRegistry));
+    }
+
+    @Benchmark
+    public BulkTransactionResponse processBulkTransactions() {
+        return service.processBulkTransactions(request).block();
+    }
+}
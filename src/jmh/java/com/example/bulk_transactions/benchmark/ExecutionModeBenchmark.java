@@ -0,0 +1,94 @@
+package com.example.bulk_transactions.benchmark;
+
+import com.example.bulk_transactions.config.BulkProcessingProperties;
+import com.example.bulk_transactions.config.BulkProcessingProperties.ExecutionMode;
+import com.example.bulk_transactions.dto.BulkTransactionRequest;
+import com.example.bulk_transactions.dto.BulkTransactionResponse;
+import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import com.example.bulk_transactions.service.BulkTransactionService;
+import com.example.bulk_transactions.service.IdempotencyService;
+import com.example.bulk_transactions.service.TenantScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the legacy fixed pool of three blocking workers with the reactive and virtual-thread
+ * execution modes, for one batch against a transaction service with 20 ms of latency.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class ExecutionModeBenchmark {
+
+    @Param({"100", "1000"})
+    private int batchSize;
+
+    private StubTransactionServiceClient client;
+    private BulkTransactionRequest request;
+    private BulkTransactionService reactiveService;
+    private BulkTransactionService virtualThreadService;
+    private ExecutorService fixedPool;
+
+    @Setup
+    public void setUp() {
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+        client = new StubTransactionServiceClient(Duration.ofMillis(20));
+        request = new BulkTransactionRequest("bench-batch", IntStream.range(0, batchSize)
+                .mapToObj(i -> new TransactionServiceRequest("tx-" + i, "src-" + i, "dest-" + i, BigDecimal.TEN))
+                .toList());
+        reactiveService = service(ExecutionMode.REACTIVE, validator);
+        virtualThreadService = service(ExecutionMode.VIRTUAL_THREADS, validator);
+        fixedPool = Executors.newFixedThreadPool(3);
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixedPool.shutdownNow();
+    }
+
+    @Benchmark
+    public List<TransactionServiceResult> fixedPoolOfThree() {
+        List<CompletableFuture<TransactionServiceResult>> futures = request.getTransactions()
+                .stream()
+                .map(transaction -> CompletableFuture.supplyAsync(() -> {
+                    client.processTransaction(transaction, transaction.getTransactionId()).block();
+                    return new TransactionServiceResult(transaction.getTransactionId(), "SUCCESS", null);
+                }, fixedPool))
+                .toList();
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    @Benchmark
+    public BulkTransactionResponse reactive() {
+        return reactiveService.processBulkTransactions(request).block();
+    }
+
+    @Benchmark
+    public BulkTransactionResponse virtualThreads() {
+        return virtualThreadService.processBulkTransactions(request).block();
+    }
+
+    private BulkTransactionService service(ExecutionMode mode, Validator validator) {
+        BulkProcessingProperties properties = new BulkProcessingProperties();
+        properties.setExecutionMode(mode);
+        // every invocation re-sends the same batch, which must not be answered from the idempotency cache
+        properties.getIdempotency().setEnabled(false);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new BulkTransactionService(client, meterRegistry, properties, validator,
+                new IdempotencyService(properties, null, meterRegistry), new TenantScheduler(properties, meterRegistry));
+    }
+}
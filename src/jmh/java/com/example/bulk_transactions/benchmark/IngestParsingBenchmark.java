@@ -0,0 +1,60 @@
+package com.example.bulk_transactions.benchmark;
+
+import com.example.bulk_transactions.config.BulkProcessingProperties;
+import com.example.bulk_transactions.service.CsvTransactionReader;
+import com.example.bulk_transactions.service.StreamingBulkRequestReader;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Parsing cost of the {@code /ingest} endpoint for the same transactions sent as a CSV file and as
+ * NDJSON, without any downstream processing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestParsingBenchmark {
+
+    @Param({"10000", "1000000"})
+    private int rows;
+
+    private CsvTransactionReader csvReader;
+    private StreamingBulkRequestReader ndjsonReader;
+    private byte[] csv;
+    private byte[] ndjson;
+
+    @Setup
+    public void setUp() {
+        csvReader = new CsvTransactionReader(new BulkProcessingProperties());
+        ndjsonReader = new StreamingBulkRequestReader(Jackson2ObjectMapperBuilder.json().build());
+        csv = IntStream.range(0, rows)
+                .mapToObj(i -> "tx-" + i + ",src-" + i % 1000 + ",dest-" + i + "," + i + ".25")
+                .collect(Collectors.joining("\n", "transactionId,fromAccount,toAccount,amount\n", "\n"))
+                .getBytes(StandardCharsets.UTF_8);
+        ndjson = IntStream.range(0, rows)
+                .mapToObj(i -> "{\"transactionId\":\"tx-" + i + "\",\"fromAccount\":\"src-" + i % 1000
+                        + "\",\"toAccount\":\"dest-" + i + "\",\"amount\":" + i + ".25}")
+                .collect(Collectors.joining("\n", "", "\n"))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Long parseCsv() throws IOException {
+        return csvReader.read(new ByteArrayInputStream(csv)).count().block();
+    }
+
+    @Benchmark
+    public Long parseNdjson() throws IOException {
+        return ndjsonReader.readNdjson(new ByteArrayInputStream(ndjson)).count().block();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.bulk_transactions.benchmark;
+
+import com.example.bulk_transactions.model.AppUser;
+import com.example.bulk_transactions.security.JwtService;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request token work: issuing a token at login, and the claims lookup plus validity check
+ * {@code JwtAuthFilter} performs on every authenticated request, with and without the verified-claims cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JwtService jwtService;
+    private AppUser user;
+    private UserDetails userDetails;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService("h8jdMysWxPFLStqi/OzPDON0kJob/dXYaIPJg60X8Bg=", 3_600_000, 10_000);
+        user = new AppUser();
+        user.setUsername("bench-user");
+        user.setRole("USER");
+        userDetails = User.withUsername("bench-user").password("unused").roles("USER").build();
+        token = jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtService.extractUsername(token);
+    }
+
+    @Benchmark
+    public boolean authenticateRequest() {
+        Claims claims = jwtService.extractAllClaims(token);
+        return claims.getSubject() != null && jwtService.isTokenValid(claims, userDetails);
+    }
+
+    @Benchmark
+    public Claims verifyUncached() {
+        // a fresh token per call keeps the verified-claims cache out of the picture
+        return jwtService.extractAllClaims(jwtService.generateToken(user));
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.bulk_transactions.benchmark;
+
+import com.example.bulk_transactions.client.TransactionServiceClient;
+import com.example.bulk_transactions.client.TransactionServiceStubServer;
+import com.example.bulk_transactions.config.TransactionServiceProperties;
+import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Sends a batch of transactions over real HTTP to a local stub with 2 ms of latency per request,
+ * once as one request per transaction and once coalesced into micro-batches.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class MicroBatchingBenchmark {
+
+    @Param({"1000"})
+    private int batchSize;
+
+    @Param({"false", "true"})
+    private boolean microBatching;
+
+    private TransactionServiceStubServer stubServer;
+    private TransactionServiceClient client;
+    private List<TransactionServiceRequest> transactions;
+
+    @Setup
+    public void setUp() {
+        stubServer = new TransactionServiceStubServer(Duration.ofMillis(2), Set.of());
+        TransactionServiceProperties properties = new TransactionServiceProperties();
+        properties.setBaseUrl(stubServer.baseUrl());
+        properties.getMicroBatching().setEnabled(microBatching);
+        client = new TransactionServiceClient(WebClient.builder(), properties, CircuitBreakerRegistry.ofDefaults(), RetryRegistry.ofDefaults(),
+                RateLimiterRegistry.ofDefaults(), new SimpleMeterRegistry());
+        transactions = IntStream.range(0, batchSize)
+                .mapToObj(i -> new TransactionServiceRequest("tx-" + i, "src-" + i, "dest-" + i, BigDecimal.TEN))
+                .toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        stubServer.close();
+    }
+
+    @Benchmark
+    public void sendBatch() {
+        Flux.fromIterable(transactions)
+                .flatMap(transaction -> client.processTransaction(transaction, transaction.getTransactionId()), 256)
+                .blockLast();
+    }
+}
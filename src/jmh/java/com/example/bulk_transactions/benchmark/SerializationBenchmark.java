@@ -0,0 +1,84 @@
+package com.example.bulk_transactions.benchmark;
+
+import com.example.bulk_transactions.dto.BulkTransactionRequest;
+import com.example.bulk_transactions.dto.BulkTransactionResponse;
+import com.example.bulk_transactions.dto.CompactTransactionResults;
+import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Jackson cost of reading a bulk request and writing a bulk response in each supported wire format,
+ * using ObjectMappers configured the way Spring Boot configures the ones behind the controllers.
+ * The encoded request size of each format is printed during setup. {@code writeCompactResponse}
+ * writes the same response from the columnar result store the bulk endpoint collects into.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int batchSize;
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    private String format;
+
+    private ObjectMapper objectMapper;
+    private BulkTransactionRequest request;
+    private byte[] encodedRequest;
+    private BulkTransactionResponse response;
+    private BulkTransactionResponse compactResponse;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = switch (format) {
+            case "CBOR" -> Jackson2ObjectMapperBuilder.cbor().build();
+            case "SMILE" -> Jackson2ObjectMapperBuilder.smile().build();
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+        request = new BulkTransactionRequest("bench-batch", IntStream.range(0, batchSize)
+                .mapToObj(i -> new TransactionServiceRequest("tx-" + i, "src-" + i, "dest-" + i, BigDecimal.valueOf(i, 2)))
+                .toList());
+        encodedRequest = objectMapper.writeValueAsBytes(request);
+        System.out.printf("%n%s request of %d transactions: %d bytes%n", format, batchSize, encodedRequest.length);
+        response = new BulkTransactionResponse("bench-batch", IntStream.range(0, batchSize)
+                .mapToObj(i -> i % 10 == 0
+                        ? new TransactionServiceResult("tx-" + i, "FAILED", "Insufficient funds")
+                        : new TransactionServiceResult("tx-" + i, "SUCCESS", null))
+                .toList());
+        CompactTransactionResults compactResults = new CompactTransactionResults(batchSize);
+        compactResults.addAll(response.getResults());
+        compactResponse = new BulkTransactionResponse("bench-batch", compactResults);
+    }
+
+    @Benchmark
+    public BulkTransactionRequest readRequest() throws IOException {
+        return objectMapper.readValue(encodedRequest, BulkTransactionRequest.class);
+    }
+
+    @Benchmark
+    public byte[] writeRequest() throws IOException {
+        return objectMapper.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public byte[] writeResponse() throws IOException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] writeCompactResponse() throws IOException {
+        return objectMapper.writeValueAsBytes(compactResponse);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.bulk_transactions.benchmark;
+
+import com.example.bulk_transactions.client.TransactionServiceClient;
+import com.example.bulk_transactions.config.TransactionServiceProperties;
+import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Transaction service stand-in that answers every call after a fixed latency without touching the network.
+ */
+public class StubTransactionServiceClient extends TransactionServiceClient {
+
+    private final Duration latency;
+
+    public StubTransactionServiceClient(Duration latency) {
+        super(WebClient.builder(), properties(), CircuitBreakerRegistry.ofDefaults(), RetryRegistry.ofDefaults(), RateLimiterRegistry.ofDefaults(),
+                new SimpleMeterRegistry());
+        this.latency = latency;
+    }
+
+    private static TransactionServiceProperties properties() {
+        TransactionServiceProperties properties = new TransactionServiceProperties();
+        properties.setBaseUrl("http://localhost");
+        return properties;
+    }
+
+    @Override
+    public Mono<Void> processTransaction(TransactionServiceRequest transaction, String idempotencyKey) {
+        return latency.isZero() ? Mono.empty() : Mono.delay(latency).then();
+    }
+}
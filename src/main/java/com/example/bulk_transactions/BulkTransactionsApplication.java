@@ -2,8 +2,10 @@ package com.example.bulk_transactions;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class BulkTransactionsApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,92 @@
+package com.example.bulk_transactions.client;
+
+import com.example.bulk_transactions.config.TransactionServiceProperties;
+import com.example.bulk_transactions.exception.TransactionServiceException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Paces transactions per destination account with one token bucket each, kept as a GCRA theoretical
+ * arrival time so a bucket is a single long. A transaction that finds its bucket empty is delayed on a
+ * timer rather than a blocked thread, and rejected outright when the delay would exceed {@code max-wait}.
+ * Buckets of accounts that have been idle long enough to be full again are simply evicted.
+ */
+class AccountRateLimiter {
+
+    private final long intervalNanos;
+    private final long burstToleranceNanos;
+    private final long maxWaitNanos;
+    private final Cache<String, Bucket> buckets;
+    private final Counter delayed;
+    private final Counter rejected;
+    private final Scheduler scheduler;
+    private final LongSupplier nanoClock;
+
+    AccountRateLimiter(TransactionServiceProperties.AccountRateLimit properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, Schedulers.parallel(), System::nanoTime);
+    }
+
+    /**
+     * Delays on {@code scheduler} and reads arrival times from {@code nanoClock}, so tests can drive both
+     * from virtual time.
+     */
+    AccountRateLimiter(TransactionServiceProperties.AccountRateLimit properties, MeterRegistry meterRegistry,
+                       Scheduler scheduler, LongSupplier nanoClock) {
+        this.scheduler = scheduler;
+        this.nanoClock = nanoClock;
+        this.intervalNanos = (long) (1_000_000_000L / properties.getRatePerSecond());
+        this.burstToleranceNanos = intervalNanos * (properties.getBurst() - 1);
+        this.maxWaitNanos = properties.getMaxWait().toNanos();
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxAccounts())
+                .expireAfterAccess(Duration.ofNanos(intervalNanos + burstToleranceNanos + maxWaitNanos))
+                .build();
+        this.delayed = meterRegistry.counter("transaction.service.account.rate.delayed");
+        this.rejected = meterRegistry.counter("transaction.service.account.rate.rejected");
+    }
+
+    /**
+     * Subscribes to {@code call} once the account's bucket has a token for it.
+     */
+    <T> Mono<T> acquire(String account, Mono<T> call) {
+        return Mono.defer(() -> {
+            long wait = buckets.get(account, key -> new Bucket()).reserve(nanoClock.getAsLong());
+            if (wait < 0) {
+                rejected.increment();
+                return Mono.error(new TransactionServiceException("Rate limit exceeded for account " + account, 429));
+            }
+            if (wait == 0) {
+                return call;
+            }
+            delayed.increment();
+            return Mono.delay(Duration.ofNanos(wait), scheduler).then(call);
+        });
+    }
+
+    private final class Bucket {
+
+        private long theoreticalArrival = Long.MIN_VALUE;
+
+        /**
+         * Takes a token, returning how long to wait before it becomes valid, or -1 (taking nothing)
+         * when that wait is longer than allowed.
+         */
+        private synchronized long reserve(long now) {
+            long arrival = theoreticalArrival == Long.MIN_VALUE ? now : Math.max(theoreticalArrival, now);
+            long wait = Math.max(0, arrival - burstToleranceNanos - now);
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            theoreticalArrival = arrival + intervalNanos;
+            return wait;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.bulk_transactions.client;
+
+import com.example.bulk_transactions.config.TransactionServiceProperties;
+import com.example.bulk_transactions.config.TransactionServiceProperties.LimitAlgorithm;
+import com.example.bulk_transactions.exception.ConcurrencyLimitExceededException;
+import com.example.bulk_transactions.exception.TransactionServiceException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Caps the calls in flight to the transaction service at a limit that follows the service's behaviour.
+ * Every completed call feeds its latency, or the fact that it timed out or was answered with an overload
+ * status, into the configured algorithm. Calls over the limit wait in line and are rejected with a
+ * {@link ConcurrencyLimitExceededException} when the line is full or they have waited {@code max-wait}.
+ * A call the circuit breaker refuses gives its slot back without counting as a sample.
+ */
+class AdaptiveConcurrencyLimiter {
+
+    /**
+     * Weight of one sample in the long-term latency average, roughly a window of the last 600 calls.
+     */
+    private static final double LONG_RTT_SMOOTHING = 1.0 / 600;
+    private static final double LIMIT_SMOOTHING = 0.2;
+
+    private final TransactionServiceProperties.ConcurrencyLimit properties;
+    private final ArrayDeque<Waiter<?>> pending = new ArrayDeque<>();
+    private final AtomicInteger drainWip = new AtomicInteger();
+    private final Counter rejections;
+    private final Scheduler scheduler;
+    private final LongSupplier nanoClock;
+    private double limit;
+    private double longRtt;
+    private int inFlight;
+
+    AdaptiveConcurrencyLimiter(TransactionServiceProperties.ConcurrencyLimit properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, Schedulers.parallel(), System::nanoTime);
+    }
+
+    /**
+     * Times out waiters on {@code scheduler} and measures latency with {@code nanoClock}, so tests can
+     * drive both from virtual time.
+     */
+    AdaptiveConcurrencyLimiter(TransactionServiceProperties.ConcurrencyLimit properties, MeterRegistry meterRegistry,
+                               Scheduler scheduler, LongSupplier nanoClock) {
+        this.properties = properties;
+        this.scheduler = scheduler;
+        this.nanoClock = nanoClock;
+        this.limit = Math.clamp(properties.getInitialLimit(), properties.getMinLimit(), properties.getMaxLimit());
+        this.rejections = meterRegistry.counter("transaction.service.limit.rejections");
+        Gauge.builder("transaction.service.limit", this, AdaptiveConcurrencyLimiter::getLimit).register(meterRegistry);
+        Gauge.builder("transaction.service.in.flight", this, AdaptiveConcurrencyLimiter::getInFlight).register(meterRegistry);
+        Gauge.builder("transaction.service.limit.pending", this, AdaptiveConcurrencyLimiter::getPending).register(meterRegistry);
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    synchronized int getPending() {
+        return pending.size();
+    }
+
+    /**
+     * Defers subscribing to {@code call} until a slot is free. Each subscription is one call against the limit.
+     */
+    <T> Mono<T> limit(Mono<T> call) {
+        return Mono.create(sink -> {
+            Waiter<T> waiter = new Waiter<>(call, sink);
+            sink.onCancel(waiter::cancel);
+            if (!enqueue(waiter)) {
+                reject(sink, "Too many calls waiting for the transaction service");
+                return;
+            }
+            drain();
+            if (waiter.isQueued()) {
+                Disposable timeout = scheduler.schedule(waiter::expire, properties.getMaxWait().toNanos(), TimeUnit.NANOSECONDS);
+                sink.onDispose(timeout);
+            }
+        });
+    }
+
+    private synchronized boolean enqueue(Waiter<?> waiter) {
+        if (pending.size() >= properties.getMaxPending() && inFlight >= (int) limit) {
+            return false;
+        }
+        pending.add(waiter);
+        return true;
+    }
+
+    private void reject(MonoSink<?> sink, String reason) {
+        rejections.increment();
+        sink.error(new ConcurrencyLimitExceededException(reason));
+    }
+
+    /**
+     * Starts waiters while there is room under the limit. A call completing synchronously re-enters
+     * through {@link #onComplete}, so only one thread drains at a time.
+     */
+    private void drain() {
+        if (drainWip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            Waiter<?> waiter;
+            while ((waiter = next()) != null) {
+                waiter.start();
+            }
+            missed = drainWip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private synchronized Waiter<?> next() {
+        while (inFlight < (int) limit && !pending.isEmpty()) {
+            Waiter<?> waiter = pending.poll();
+            if (waiter.state == Waiter.QUEUED) {
+                waiter.state = Waiter.RUNNING;
+                inFlight++;
+                return waiter;
+            }
+        }
+        return null;
+    }
+
+    private void onComplete(long startedAt, SignalType signal, Throwable error) {
+        long rtt = Math.max(1, nanoClock.getAsLong() - startedAt);
+        synchronized (this) {
+            int wasInFlight = inFlight--;
+            if (signal == SignalType.ON_ERROR && isOverload(error)) {
+                limit = Math.max(properties.getMinLimit(), limit * properties.getBackoffRatio());
+            } else if (signal != SignalType.CANCEL && !(error instanceof CallNotPermittedException)) {
+                update(rtt, wasInFlight);
+            }
+        }
+        drain();
+    }
+
+    private void update(long rtt, int wasInFlight) {
+        if (properties.getAlgorithm() == LimitAlgorithm.AIMD) {
+            // only grow when the limit is actually being used, otherwise it drifts up unchecked while idle
+            if (wasInFlight * 2 >= limit) {
+                limit = Math.min(properties.getMaxLimit(), limit + 1);
+            }
+            return;
+        }
+        longRtt = longRtt == 0 ? rtt : longRtt * (1 - LONG_RTT_SMOOTHING) + rtt * LONG_RTT_SMOOTHING;
+        if (longRtt > rtt * 2) {
+            // latency recovered well below the average, let the average catch up instead of over-growing
+            longRtt *= 0.95;
+        }
+        if (wasInFlight * 2 < limit) {
+            return;
+        }
+        double gradient = Math.clamp(properties.getTolerance() * longRtt / rtt, 0.5, 1.0);
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = Math.clamp(limit * (1 - LIMIT_SMOOTHING) + target * LIMIT_SMOOTHING,
+                properties.getMinLimit(), properties.getMaxLimit());
+    }
+
+    /**
+     * Timeouts, connection failures and 429/5xx answers mean the service is struggling; any other
+     * error is a normal answer as far as its capacity is concerned.
+     */
+    static boolean isOverload(Throwable error) {
+        if (error instanceof TransactionServiceException e) {
+            return e.getStatusCode() == 429 || e.getStatusCode() >= 500;
+        }
+        return error instanceof TimeoutException
+                || error instanceof ReadTimeoutException
+                || error instanceof WebClientRequestException;
+    }
+
+    private final class Waiter<T> {
+
+        private static final int QUEUED = 0;
+        private static final int RUNNING = 1;
+        private static final int CANCELLED = 2;
+
+        private final Mono<T> call;
+        private final MonoSink<T> sink;
+        private int state = QUEUED;
+        private Disposable running;
+
+        private Waiter(Mono<T> call, MonoSink<T> sink) {
+            this.call = call;
+            this.sink = sink;
+        }
+
+        private boolean isQueued() {
+            synchronized (AdaptiveConcurrencyLimiter.this) {
+                return state == QUEUED;
+            }
+        }
+
+        private void start() {
+            long startedAt = nanoClock.getAsLong();
+            // the slot is given back before the outcome is passed on, so the next waiter starts right away
+            Disposable subscription = call
+                    .doOnSuccess(value -> onComplete(startedAt, SignalType.ON_COMPLETE, null))
+                    .doOnError(error -> onComplete(startedAt, SignalType.ON_ERROR, error))
+                    .doOnCancel(() -> onComplete(startedAt, SignalType.CANCEL, null))
+                    .subscribe(sink::success, sink::error, sink::success);
+            boolean cancelledWhileStarting;
+            synchronized (AdaptiveConcurrencyLimiter.this) {
+                running = subscription;
+                cancelledWhileStarting = state == CANCELLED;
+            }
+            if (cancelledWhileStarting) {
+                subscription.dispose();
+            }
+        }
+
+        private void cancel() {
+            Disposable subscription;
+            synchronized (AdaptiveConcurrencyLimiter.this) {
+                // a queued waiter is only marked, next() drops it when it reaches the head of the line
+                state = CANCELLED;
+                subscription = running;
+            }
+            if (subscription != null) {
+                subscription.dispose();
+            }
+        }
+
+        private void expire() {
+            synchronized (AdaptiveConcurrencyLimiter.this) {
+                if (state != QUEUED) {
+                    return;
+                }
+                state = CANCELLED;
+            }
+            reject(sink, "Timed out waiting for a transaction service slot");
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.bulk_transactions.client;
+
+import com.example.bulk_transactions.config.TransactionServiceProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzips request bodies to the transaction service once they reach {@code min-request-size}. Bodies here
+ * are always one encoded value, so it is compressed whole and sent with its compressed length.
+ */
+class RequestCompression implements ExchangeFilterFunction {
+
+    private final long minRequestSize;
+    private final DistributionSummary ratio;
+    private final Timer compressionTime;
+
+    RequestCompression(TransactionServiceProperties.Compression properties, MeterRegistry meterRegistry) {
+        this.minRequestSize = properties.getMinRequestSize().toBytes();
+        this.ratio = DistributionSummary.builder("transaction.service.compression.ratio")
+                .description("Uncompressed to compressed size of request bodies sent to the transaction service")
+                .register(meterRegistry);
+        this.compressionTime = Timer.builder("transaction.service.compression.time")
+                .description("Time spent gzipping request bodies sent to the transaction service")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        ClientRequest compressed = ClientRequest.from(request)
+                .body((message, context) -> request.body().insert(new CompressingRequest(message), context))
+                .build();
+        return next.exchange(compressed);
+    }
+
+    private byte[] gzip(DataBuffer body) throws IOException {
+        long startedAt = System.nanoTime();
+        int size = body.readableByteCount();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size / 4 + 64);
+        try (InputStream in = body.asInputStream(true); GZIPOutputStream gzip = new GZIPOutputStream(out, 8192)) {
+            in.transferTo(gzip);
+        }
+        byte[] compressed = out.toByteArray();
+        compressionTime.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        ratio.record((double) size / compressed.length);
+        return compressed;
+    }
+
+    private final class CompressingRequest extends ClientHttpRequestDecorator {
+
+        private CompressingRequest(ClientHttpRequest delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return DataBufferUtils.join(body).flatMap(buffer -> {
+                if (buffer.readableByteCount() < minRequestSize) {
+                    return super.writeWith(Mono.just(buffer));
+                }
+                return Mono.fromCallable(() -> gzip(buffer))
+                        .flatMap(compressed -> {
+                            getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+                            getHeaders().setContentLength(compressed.length);
+                            return super.writeWith(Mono.just(bufferFactory().wrap(compressed)));
+                        });
+            });
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.bulk_transactions.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the retries spent on one batch to a share of its transactions, so a downstream outage costs a
+ * batch at most {@code minRetries + ratio * transactions} extra calls instead of multiplying its load by
+ * the retry attempts. Every first attempt earns {@code ratio} of a retry, which also works for streamed
+ * batches whose size is not known up front. Travels with the batch in the Reactor context.
+ */
+public final class RetryBudget {
+
+    public static final String CONTEXT_KEY = RetryBudget.class.getName();
+
+    static final RetryBudget UNLIMITED = new RetryBudget(Double.POSITIVE_INFINITY, Integer.MAX_VALUE);
+
+    private final double ratio;
+    private final int minRetries;
+    private final AtomicLong firstAttempts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+
+    public RetryBudget(double ratio, int minRetries) {
+        this.ratio = ratio;
+        this.minRetries = minRetries;
+    }
+
+    void recordFirstAttempt() {
+        firstAttempts.incrementAndGet();
+    }
+
+    boolean tryRetry() {
+        while (true) {
+            long used = retries.get();
+            if (used >= minRetries + ratio * firstAttempts.get()) {
+                return false;
+            }
+            if (retries.compareAndSet(used, used + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Calls made per transaction sent: 1.0 when nothing was retried.
+     */
+    public double amplification() {
+        long first = firstAttempts.get();
+        return first == 0 ? 1.0 : (double) (first + retries.get()) / first;
+    }
+}
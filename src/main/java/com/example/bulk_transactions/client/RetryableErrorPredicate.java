@@ -0,0 +1,28 @@
+package com.example.bulk_transactions.client;
+
+import com.example.bulk_transactions.exception.ConcurrencyLimitExceededException;
+import com.example.bulk_transactions.exception.RetryBudgetExhaustedException;
+import com.example.bulk_transactions.exception.TransactionServiceException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+
+import java.util.function.Predicate;
+
+/**
+ * Retry predicate for {@code transaction-service-retry}: only errors another attempt could fix are
+ * retried. Declined transactions (4xx other than 429), an open circuit, an exhausted retry budget and calls
+ * shed by our own concurrency limit are not.
+ */
+public class RetryableErrorPredicate implements Predicate<Throwable> {
+
+    @Override
+    public boolean test(Throwable error) {
+        if (error instanceof RetryBudgetExhaustedException || error instanceof CallNotPermittedException
+                || error instanceof ConcurrencyLimitExceededException) {
+            return false;
+        }
+        if (error instanceof TransactionServiceException e) {
+            return e.getStatusCode() == 429 || e.getStatusCode() >= 500;
+        }
+        return true;
+    }
+}
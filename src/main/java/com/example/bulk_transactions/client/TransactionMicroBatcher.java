@@ -0,0 +1,98 @@
+package com.example.bulk_transactions.client;
+
+import com.example.bulk_transactions.config.TransactionServiceProperties;
+import com.example.bulk_transactions.dto.client.TransactionServiceBatchItem;
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import com.example.bulk_transactions.exception.TransactionServiceException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Coalesces individual transactions into micro-batches for the transaction service's bulk endpoint.
+ * A batch is flushed when it is full or when its linger time runs out, so batches stay small and
+ * latency stays low under light load, and grow towards {@code max-size} as load increases.
+ *
+ * <p>One micro-batch mixes transactions of different batches and users, whose transactionIds may be
+ * the same. The bulk endpoint answers with one outcome per transaction in request order, so outcomes
+ * are handed back by position; a response that does not line up fails every transaction of the batch.
+ * Each transaction carries its own idempotency key. A failed call fails each of its transactions, which
+ * their callers retry on their own retry budgets.
+ */
+class TransactionMicroBatcher implements AutoCloseable {
+
+    private record Pending(TransactionServiceBatchItem transaction, ContextView context,
+                           Sinks.One<TransactionServiceResult> outcome) {
+    }
+
+    private final Sinks.Many<Pending> queue = Sinks.many().unicast().onBackpressureBuffer();
+    private final Function<List<TransactionServiceBatchItem>, Mono<List<TransactionServiceResult>>> sender;
+    private final Disposable pipeline;
+
+    TransactionMicroBatcher(TransactionServiceProperties.MicroBatching properties,
+                            Function<List<TransactionServiceBatchItem>, Mono<List<TransactionServiceResult>>> sender) {
+        this.sender = sender;
+        this.pipeline = queue.asFlux()
+                .bufferTimeout(properties.getMaxSize(), properties.getLinger(), true)
+                .flatMap(this::dispatch, properties.getMaxBatchesInFlight())
+                .subscribe();
+    }
+
+    /**
+     * Queues {@code transaction} for the next micro-batch. Each subscription queues it again, so a retry
+     * goes out in a later micro-batch, under the same idempotency key.
+     */
+    Mono<TransactionServiceResult> submit(TransactionServiceBatchItem transaction) {
+        return Mono.deferContextual(context -> {
+            Sinks.One<TransactionServiceResult> outcome = Sinks.one();
+            queue.emitNext(new Pending(transaction, context, outcome), Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+            return outcome.asMono();
+        });
+    }
+
+    private Mono<Void> dispatch(List<Pending> batch) {
+        List<TransactionServiceBatchItem> transactions = batch.stream().map(Pending::transaction).toList();
+        return sender.apply(transactions)
+                // the callers' contexts cannot be merged; the call runs in the one of the caller that opened it
+                .contextWrite(batch.get(0).context())
+                .defaultIfEmpty(List.of())
+                .doOnNext(results -> {
+                    if (!linesUp(transactions, results)) {
+                        TransactionServiceException mismatch = new TransactionServiceException("TransactionService returned "
+                                + results.size() + " outcomes in another order than the " + transactions.size() + " transactions sent", 502);
+                        batch.forEach(pending -> pending.outcome().tryEmitError(mismatch));
+                        return;
+                    }
+                    for (int position = 0; position < batch.size(); position++) {
+                        batch.get(position).outcome().tryEmitValue(results.get(position));
+                    }
+                })
+                .doOnError(error -> batch.forEach(pending -> pending.outcome().tryEmitError(error)))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    private static boolean linesUp(List<TransactionServiceBatchItem> transactions, List<TransactionServiceResult> results) {
+        if (results.size() != transactions.size()) {
+            return false;
+        }
+        for (int position = 0; position < transactions.size(); position++) {
+            if (!Objects.equals(transactions.get(position).getTransactionId(), results.get(position).getTransactionId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        queue.tryEmitComplete();
+        pipeline.dispose();
+    }
+}
@@ -1,39 +1,313 @@
 package com.example.bulk_transactions.client;
 
+import com.example.bulk_transactions.config.TransactionServiceProperties;
+import com.example.bulk_transactions.dto.client.TransactionServiceBatchItem;
 import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import com.example.bulk_transactions.exception.RetryBudgetExhaustedException;
 import com.example.bulk_transactions.exception.TransactionServiceException;
-import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
-import io.github.resilience4j.retry.annotation.Retry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.ratelimiter.operator.RateLimiterOperator;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
 import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.Http2AllocationStrategy;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Component
 @Slf4j
 public class TransactionServiceClient {
+    /**
+     * Lets the transaction service recognise a retried post of a transaction it already applied.
+     */
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final ParameterizedTypeReference<List<TransactionServiceResult>> RESULT_LIST = new ParameterizedTypeReference<>() {
+    };
+
+    private final ConnectionProvider connectionProvider;
     private final WebClient webClient;
+    private final TransactionServiceProperties properties;
+    private final MediaType wireFormat;
+    private final CircuitBreaker circuitBreaker;
+    private final Retry retry;
+    private final RateLimiter rateLimiter;
+    private final AccountRateLimiter accountRateLimiter;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final TransactionMicroBatcher microBatcher;
+    private final Timer successfulCalls;
+    private final Timer failedCalls;
+    private final Counter firstAttempts;
+    private final Counter retryAttempts;
+    private final Counter retryBudgetExhausted;
 
-    public TransactionServiceClient(WebClient.Builder webClientBuilder, @Value("${transaction-service.base-url}") String baseUrl) {
-        this.webClient = webClientBuilder.baseUrl(baseUrl).build();
+    public TransactionServiceClient(WebClient.Builder webClientBuilder,
+                                    TransactionServiceProperties properties,
+                                    CircuitBreakerRegistry circuitBreakerRegistry,
+                                    RetryRegistry retryRegistry,
+                                    RateLimiterRegistry rateLimiterRegistry,
+                                    MeterRegistry meterRegistry) {
+        this.connectionProvider = connectionProvider(properties);
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .protocol(properties.getProtocols().toArray(HttpProtocol[]::new))
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, Math.toIntExact(properties.getConnectTimeout().toMillis()))
+                .responseTimeout(properties.getResponseTimeout())
+                // sends Accept-Encoding: gzip and inflates compressed responses
+                .compress(properties.getCompression().isEnabled());
+        if (properties.getCompression().isEnabled()) {
+            webClientBuilder.filter(new RequestCompression(properties.getCompression(), meterRegistry));
+        }
+        this.webClient = webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .baseUrl(properties.getBaseUrl())
+                .codecs(codecs -> {
+                    // Smile is among the default codecs, Jackson CBOR is not
+                    codecs.customCodecs().register(new SingleValueCborEncoder());
+                    codecs.customCodecs().register(new Jackson2CborDecoder());
+                })
+                .build();
+        this.wireFormat = properties.getWireFormat().getMediaType();
+        this.properties = properties;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("transaction-service-cb");
+        this.retry = retryRegistry.retry("transaction-service-retry");
+        this.rateLimiter = rateLimiterRegistry.rateLimiter("transaction-service-rl");
+        this.accountRateLimiter = properties.getAccountRateLimit().isEnabled()
+                ? new AccountRateLimiter(properties.getAccountRateLimit(), meterRegistry)
+                : null;
+        this.limiter = properties.getConcurrencyLimit().isEnabled()
+                ? new AdaptiveConcurrencyLimiter(properties.getConcurrencyLimit(), meterRegistry)
+                : null;
+        this.successfulCalls = callTimer("success", meterRegistry);
+        this.failedCalls = callTimer("failure", meterRegistry);
+        this.firstAttempts = meterRegistry.counter("transaction.service.attempts", "attempt", "first");
+        this.retryAttempts = meterRegistry.counter("transaction.service.attempts", "attempt", "retry");
+        this.retryBudgetExhausted = meterRegistry.counter("transaction.service.retry.budget.exhausted");
+        this.microBatcher = properties.getMicroBatching().isEnabled()
+                ? new TransactionMicroBatcher(properties.getMicroBatching(), transactions -> exchange(transactions).transform(this::guarded))
+                : null;
     }
 
-    @Retry(name = "transaction-service-retry")
-    @CircuitBreaker(name = "transaction-service-cb", fallbackMethod = "fallbackTransaction")
-    public void processTransaction(TransactionServiceRequest transaction) {
-        webClient.post()
-                .uri("/api/v1/transactions")
+    /**
+     * Sends one transaction, either directly or as part of a micro-batch when micro-batching is enabled,
+     * after pacing it against its destination account's rate limit when one is configured. Either way it
+     * carries {@code idempotencyKey}, the key this service deduplicates the transaction under, and is
+     * retried on the retry budget of the caller's context. Completes empty on success and with a
+     * {@link TransactionServiceException} on failure.
+     */
+    public Mono<Void> processTransaction(TransactionServiceRequest transaction, String idempotencyKey) {
+        if (accountRateLimiter != null) {
+            return accountRateLimiter.acquire(transaction.getToAccount(), send(transaction, idempotencyKey));
+        }
+        return send(transaction, idempotencyKey);
+    }
+
+    private Mono<Void> send(TransactionServiceRequest transaction, String idempotencyKey) {
+        if (microBatcher != null) {
+            return microBatcher.submit(TransactionServiceBatchItem.of(transaction, idempotencyKey))
+                    .transform(this::retried)
+                    .onErrorResume(t -> fallbackTransaction(transaction, t))
+                    .flatMap(result -> "SUCCESS".equals(result.getStatus())
+                            ? Mono.<Void>empty()
+                            : Mono.error(new TransactionServiceException(result.getReason())));
+        }
+        return webClient.post()
+                .uri(properties.getTransactionPath())
+                .header(IDEMPOTENCY_KEY, idempotencyKey)
+                .httpRequest(request -> responseTimeout(request.getNativeRequest(), properties.getResponseTimeout()))
+                .contentType(wireFormat)
                 .bodyValue(transaction)
                 .retrieve()
-                .onStatus(HttpStatusCode::isError, resp -> resp.bodyToMono(String.class).flatMap(body -> Mono.error(new TransactionServiceException(body))))
+                .onStatus(HttpStatusCode::isError, TransactionServiceClient::toException)
                 .toBodilessEntity()
-                .block();
+                .then()
+                .transform(this::resilient)
+                .onErrorResume(t -> fallbackTransaction(transaction, t));
+    }
+
+    /**
+     * Sends several transactions in one call to the bulk endpoint, returning the per-transaction outcomes
+     * in the order of {@code transactions}.
+     */
+    public Mono<List<TransactionServiceResult>> processTransactions(List<TransactionServiceBatchItem> transactions) {
+        return exchange(transactions)
+                .transform(this::resilient)
+                .onErrorResume(t -> fallbackBatch(transactions, t));
+    }
+
+    private Mono<List<TransactionServiceResult>> exchange(List<TransactionServiceBatchItem> transactions) {
+        return webClient.post()
+                .uri(properties.getBatchPath())
+                .httpRequest(request -> responseTimeout(request.getNativeRequest(), properties.getBatchResponseTimeout()))
+                .contentType(wireFormat)
+                .accept(wireFormat)
+                .bodyValue(transactions)
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, TransactionServiceClient::toException)
+                .bodyToMono(RESULT_LIST);
+    }
+
+    /**
+     * Wraps one exchange in the resilience chain: {@link #guarded} attempts, {@link #retried}.
+     */
+    private <T> Mono<T> resilient(Mono<T> exchange) {
+        return retried(guarded(exchange));
+    }
+
+    /**
+     * One attempt of an exchange. It holds a slot of the adaptive limit and takes a rate limiter permit,
+     * both outside the breaker, so neither our own load shedding nor pacing ever counts as a failure of
+     * the service.
+     */
+    private <T> Mono<T> guarded(Mono<T> exchange) {
+        return exchange
+                .transform(this::timed)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transform(this::limited)
+                .transformDeferred(RateLimiterOperator.of(rateLimiter));
+    }
+
+    /**
+     * Retries {@code attempts}, drawing them from the subscriber's {@link RetryBudget} when there is one.
+     */
+    private <T> Mono<T> retried(Mono<T> attempts) {
+        return Mono.deferContextual(context -> {
+            RetryBudget budget = context.getOrDefault(RetryBudget.CONTEXT_KEY, RetryBudget.UNLIMITED);
+            AtomicBoolean firstAttempt = new AtomicBoolean(true);
+            return attempts
+                    .transform(attempt -> Mono.defer(() -> budgeted(attempt, budget, firstAttempt.getAndSet(false))))
+                    .transformDeferred(RetryOperator.of(retry));
+        });
+    }
+
+    private <T> Mono<T> budgeted(Mono<T> attempt, RetryBudget budget, boolean first) {
+        if (first) {
+            budget.recordFirstAttempt();
+            firstAttempts.increment();
+            return attempt;
+        }
+        if (!budget.tryRetry()) {
+            retryBudgetExhausted.increment();
+            return Mono.error(new RetryBudgetExhaustedException("Retry budget exhausted for this batch"));
+        }
+        retryAttempts.increment();
+        return attempt;
+    }
+
+    private static Timer callTimer(String outcome, MeterRegistry meterRegistry) {
+        return Timer.builder("transaction.service.calls")
+                .description("Latency of single attempts against the transaction service, waits for limits excluded")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private <T> Mono<T> timed(Mono<T> exchange) {
+        return Mono.defer(() -> {
+            long startedAt = System.nanoTime();
+            return exchange
+                    .doOnSuccess(value -> successfulCalls.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS))
+                    .doOnError(error -> failedCalls.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    private <T> Mono<T> limited(Mono<T> exchange) {
+        return limiter != null ? limiter.limit(exchange) : exchange;
+    }
+
+    private static Mono<Throwable> toException(ClientResponse response) {
+        return response.bodyToMono(String.class)
+                .defaultIfEmpty("")
+                .map(body -> new TransactionServiceException(body, response.statusCode().value()));
+    }
+
+    private static void responseTimeout(HttpClientRequest request, Duration timeout) {
+        request.responseTimeout(timeout);
     }
 
-    public void fallbackTransaction(TransactionServiceRequest transaction, Throwable t) {
+    private static ConnectionProvider connectionProvider(TransactionServiceProperties properties) {
+        TransactionServiceProperties.ConnectionPool pool = properties.getConnectionPool();
+        ConnectionProvider.Builder builder = ConnectionProvider.builder("transaction-service")
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictionInterval())
+                .lifo()
+                .metrics(pool.isMetricsEnabled());
+        if (properties.getProtocols().contains(HttpProtocol.H2C) || properties.getProtocols().contains(HttpProtocol.H2)) {
+            builder.allocationStrategy(Http2AllocationStrategy.builder()
+                    .maxConnections(pool.getMaxConnections())
+                    .maxConcurrentStreams(pool.getMaxConcurrentStreams())
+                    .build());
+        }
+        return builder.build();
+    }
+
+    private <T> Mono<T> fallbackTransaction(TransactionServiceRequest transaction, Throwable t) {
         log.warn("Fallback triggered for transaction {}: {}", transaction.getTransactionId(), t.toString());
-        throw new TransactionServiceException("TransactionService unavailable:" + t.getMessage());
+        return Mono.error(new TransactionServiceException("TransactionService unavailable:" + t.getMessage()));
+    }
+
+    private Mono<List<TransactionServiceResult>> fallbackBatch(List<TransactionServiceBatchItem> transactions, Throwable t) {
+        log.warn("Fallback triggered for batch of {} transactions: {}", transactions.size(), t.toString());
+        return Mono.error(new TransactionServiceException("TransactionService unavailable:" + t.getMessage()));
+    }
+
+    /**
+     * Spring's CBOR encoder rejects every publisher, even though request bodies here are always one value.
+     */
+    private static final class SingleValueCborEncoder extends Jackson2CborEncoder {
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                       MimeType mimeType, Map<String, Object> hints) {
+            if (inputStream instanceof Mono<?> mono) {
+                return mono.map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints)).flux();
+            }
+            return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (microBatcher != null) {
+            microBatcher.close();
+        }
+        connectionProvider.dispose();
     }
 }
@@ -0,0 +1,43 @@
+package com.example.bulk_transactions.config;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import org.hibernate.validator.constraints.time.DurationMin;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "auth")
+public class AuthProperties {
+
+    /**
+     * Build the authenticated principal from the role claim of a verified token instead of loading
+     * the user. Role changes then only take effect once the user's current tokens expire.
+     */
+    private boolean trustRoleClaims = false;
+
+    @Valid
+    private final UserCache userCache = new UserCache();
+
+    @Data
+    public static class UserCache {
+
+        /**
+         * Cache user lookups made while authenticating requests.
+         */
+        private boolean enabled = true;
+
+        @Min(1)
+        private long maxEntries = 10_000;
+
+        /**
+         * How long a loaded user is reused before being read from the database again.
+         */
+        @DurationMin(seconds = 1)
+        private Duration ttl = Duration.ofMinutes(5);
+    }
+}
@@ -0,0 +1,410 @@
+package com.example.bulk_transactions.config;
+
+import com.example.bulk_transactions.model.Batch;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import org.hibernate.validator.constraints.time.DurationMin;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "bulk-processing")
+public class BulkProcessingProperties {
+
+    /**
+     * Maximum number of downstream calls kept in flight for a single batch.
+     */
+    @Min(1)
+    private int concurrency = 256;
+
+    @NotNull
+    private ExecutionMode executionMode = ExecutionMode.REACTIVE;
+
+    @Valid
+    private final VirtualThreads virtualThreads = new VirtualThreads();
+
+    @Valid
+    private final Jobs jobs = new Jobs();
+
+    @Valid
+    private final Idempotency idempotency = new Idempotency();
+
+    @Valid
+    private final Persistence persistence = new Persistence();
+
+    @Valid
+    private final Scheduling scheduling = new Scheduling();
+
+    @Valid
+    private final RetryBudget retryBudget = new RetryBudget();
+
+    @Valid
+    private final Logging logging = new Logging();
+
+    @Valid
+    private final FailurePolicy failurePolicy = new FailurePolicy();
+
+    @Valid
+    private final Ordering ordering = new Ordering();
+
+    @Valid
+    private final RequestDecompression requestDecompression = new RequestDecompression();
+
+    @Valid
+    private final CsvImport csvImport = new CsvImport();
+
+    @Valid
+    private final Preflight preflight = new Preflight();
+
+    public enum ExecutionMode {
+        /**
+         * Non-blocking WebClient calls composed on the Reactor event loop.
+         */
+        REACTIVE,
+        /**
+         * Each transaction runs as a blocking call on its own virtual thread.
+         */
+        VIRTUAL_THREADS
+    }
+
+    @Data
+    public static class VirtualThreads {
+
+        /**
+         * Maximum number of blocking calls to the transaction service across all batches.
+         */
+        @Min(1)
+        private int maxDownstreamInFlight = 1000;
+    }
+
+    @Data
+    public static class Jobs {
+
+        /**
+         * Maximum number of asynchronous jobs allowed to run at the same time.
+         */
+        @Min(1)
+        private int maxActiveJobs = 50;
+
+        /**
+         * Upper bound on transaction results kept for finished jobs, across all jobs.
+         */
+        @Min(1)
+        private long maxRetainedResults = 1_000_000;
+
+        /**
+         * How long a finished job stays available for status and result queries.
+         */
+        @DurationMin(seconds = 1)
+        private Duration retention = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Idempotency {
+
+        /**
+         * Skip the downstream call for transactions already completed under the same batchId.
+         */
+        private boolean enabled = true;
+
+        @Min(1)
+        private long maxEntries = 500_000;
+
+        @DurationMin(seconds = 1)
+        private Duration ttl = Duration.ofHours(24);
+
+        /**
+         * Also record completed transactions in the processed_transactions table, so duplicates are
+         * caught after a restart or on another node.
+         */
+        private boolean persistent = false;
+    }
+
+    @Data
+    public static class Persistence {
+
+        /**
+         * Persist asynchronous jobs and their outcomes, and resume unfinished jobs on startup.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Outcomes are written behind the fan-out in chunks of up to this many rows.
+         */
+        @Min(1)
+        private int flushSize = 500;
+
+        /**
+         * Longest time an outcome waits in the write-behind buffer before being flushed.
+         */
+        @DurationMin(millis = 1)
+        private Duration flushInterval = Duration.ofMillis(200);
+
+        /**
+         * Times a chunk is tried before the batches in it are marked FAILED.
+         */
+        @Min(1)
+        private int writeAttempts = 3;
+
+        /**
+         * Wait before the first retry of a chunk; it doubles with each further attempt.
+         */
+        @NotNull
+        private Duration writeRetryBackoff = Duration.ofMillis(100);
+
+        /**
+         * Names this instance as the holder of the batches it runs. A stable id lets a restarted instance
+         * resume its own batches right away; by default each run gets a fresh one and picks them up once
+         * their lease has expired.
+         */
+        @NotBlank
+        @Size(max = Batch.INSTANCE_ID_LENGTH)
+        private String instanceId = UUID.randomUUID().toString();
+
+        /**
+         * How long a running batch stays with its instance without a heartbeat. Heartbeats go out three
+         * times per lease, and other instances take over batches whose lease has expired.
+         */
+        @DurationMin(seconds = 1)
+        private Duration lease = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Scheduling {
+
+        /**
+         * Share downstream capacity fairly between users instead of first come, first served.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Maximum number of downstream calls in flight across all users.
+         */
+        @Min(1)
+        private int maxInFlight = 1000;
+
+        /**
+         * Default cap on the downstream calls a single user may have in flight.
+         */
+        @Min(1)
+        private int maxInFlightPerTenant = 500;
+
+        /**
+         * Per-user overrides, keyed by username.
+         */
+        @Valid
+        private Map<String, Tenant> tenants = new HashMap<>();
+    }
+
+    @Data
+    public static class RetryBudget {
+
+        /**
+         * Cap the retries spent on each batch; retries past the budget fail the transaction instead.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Retries a batch earns per transaction sent.
+         */
+        @DecimalMin("0.0")
+        private double ratio = 0.1;
+
+        /**
+         * Retries every batch may spend regardless of its size, so small batches still ride out a blip.
+         */
+        @Min(0)
+        private int minRetries = 10;
+    }
+
+    @Data
+    public static class Logging {
+
+        /**
+         * Share of transaction outcomes logged one by one, from 0 (none) to 1 (every transaction).
+         */
+        @DecimalMin("0.0")
+        @DecimalMax("1.0")
+        private double itemSampleRate = 0.01;
+
+        /**
+         * Log one line per batch with its outcome counts and latency percentiles.
+         */
+        private boolean batchSummary = true;
+    }
+
+    @Data
+    public static class FailurePolicy {
+
+        @NotNull
+        private FailureMode mode = FailureMode.CONTINUE;
+
+        /**
+         * With {@code FAIL_FAST}, abort the batch once this many transactions have failed.
+         */
+        @Min(1)
+        private Integer maxFailures;
+
+        /**
+         * With {@code FAIL_FAST}, abort the batch once this share of its finished transactions has failed.
+         */
+        @DecimalMin("0.0")
+        @DecimalMax("1.0")
+        private Double maxFailureRate;
+
+        /**
+         * Finished transactions needed before {@code max-failure-rate} is looked at, so one early
+         * failure does not abort a batch.
+         */
+        @Min(1)
+        private int minSamples = 20;
+
+        /**
+         * {@code FAIL_FAST} without a threshold would never abort anything.
+         */
+        @AssertTrue(message = "FAIL_FAST needs max-failures or max-failure-rate")
+        public boolean isThresholdSetWhenFailingFast() {
+            return mode != FailureMode.FAIL_FAST || maxFailures != null || maxFailureRate != null;
+        }
+    }
+
+    @Data
+    public static class Ordering {
+
+        /**
+         * Send the transactions of a batch that debit the same account one at a time, in submission order.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Accounts are hashed to this many lanes, each running one transaction at a time. Effective
+         * parallelism is the smaller of this and {@code concurrency}.
+         */
+        @Min(1)
+        private int lanes = 256;
+    }
+
+    @Data
+    public static class RequestDecompression {
+
+        /**
+         * Accept gzip and deflate request bodies ({@code Content-Encoding}); other encodings get a 415.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Decompressed size at which a request body is rejected with a 413, whatever it was compressed to.
+         */
+        @NotNull
+        private DataSize maxSize = DataSize.ofMegabytes(512);
+
+        /**
+         * Decompressed to compressed size ratio at which a body is rejected as a compression bomb. Bulk
+         * JSON compresses 10-30x; bombs reach 1000x.
+         */
+        @Min(2)
+        private int maxRatio = 200;
+
+        /**
+         * The ratio is only checked past this much decompressed data, as short prefixes compress unevenly.
+         */
+        @NotNull
+        private DataSize ratioCheckThreshold = DataSize.ofMegabytes(1);
+    }
+
+    @Data
+    public static class Preflight {
+
+        /**
+         * Fail duplicate transactionIds within a batch, transfers to the source account and amounts the
+         * transaction service cannot store locally, without a downstream call.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Decimal places the transaction service keeps; amounts with more significant places are rejected.
+         * Unset, amounts are not checked.
+         */
+        @Min(0)
+        private Integer maxScale;
+
+        /**
+         * Total digits the transaction service stores an amount in, as the 19 of DECIMAL(19,2). Set
+         * together with {@code max-scale}.
+         */
+        @Min(1)
+        private Integer maxPrecision;
+
+        @AssertTrue(message = "max-scale and max-precision are set together, with max-scale not above max-precision")
+        public boolean isAmountLimitConsistent() {
+            if (maxScale == null || maxPrecision == null) {
+                return maxScale == null && maxPrecision == null;
+            }
+            return maxScale <= maxPrecision;
+        }
+    }
+
+    @Data
+    public static class CsvImport {
+
+        /**
+         * Rows parsed per step. The parser runs at most two chunks ahead of processing, so this also bounds
+         * the rows held in memory for an uploaded file.
+         */
+        @Min(1)
+        private int chunkSize = 1000;
+
+        private char delimiter = ',';
+    }
+
+    public enum FailureMode {
+        /**
+         * Process every transaction whatever the others' outcome.
+         */
+        CONTINUE,
+        /**
+         * Stop sending once a failure threshold is crossed; transactions not yet sent are SKIPPED.
+         */
+        FAIL_FAST
+    }
+
+    public enum Priority {
+        HIGH, NORMAL, LOW
+    }
+
+    @Data
+    public static class Tenant {
+
+        /**
+         * Relative share of downstream capacity against other users in the same priority lane.
+         */
+        @Min(1)
+        private int weight = 1;
+
+        /**
+         * Overrides {@code max-in-flight-per-tenant} for this user.
+         */
+        @Min(1)
+        private Integer maxInFlight;
+
+        /**
+         * Lanes are served strictly in order; a lower lane only gets capacity no higher lane can use.
+         */
+        @NotNull
+        private Priority priority = Priority.NORMAL;
+    }
+}
@@ -33,7 +33,7 @@ public class SecurityConfig {
             .csrf(AbstractHttpConfigurer::disable)
             .authorizeHttpRequests(auth -> auth
                     .requestMatchers("/api/v1/auth/**").permitAll()
-                    .requestMatchers("/api/v1/bulk-transactions").hasAnyRole("USER", "ADMIN")
+                    .requestMatchers("/api/v1/bulk-transactions", "/api/v1/bulk-transactions/**").hasAnyRole("USER", "ADMIN")
                     .requestMatchers("/actuator/**").hasRole("ADMIN")
                     .anyRequest().authenticated())
                 .exceptionHandling(ex -> ex
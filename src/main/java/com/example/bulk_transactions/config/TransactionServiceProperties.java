@@ -0,0 +1,269 @@
+package com.example.bulk_transactions.config;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.hibernate.validator.constraints.time.DurationMin;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.MediaType;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+import reactor.netty.http.HttpProtocol;
+
+import java.time.Duration;
+import java.util.List;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "transaction-service")
+public class TransactionServiceProperties {
+
+    @NotBlank
+    private String baseUrl;
+
+    @NotBlank
+    private String transactionPath = "/api/v1/transactions";
+
+    /**
+     * Bulk endpoint taking a JSON array of transactions and answering with one result per transaction.
+     */
+    @NotBlank
+    private String batchPath = "/api/v1/transactions/batch";
+
+    /**
+     * HTTP11, H2C (cleartext HTTP/2 with prior knowledge) or both, in which case H2C is negotiated by upgrade.
+     */
+    @NotEmpty
+    private List<HttpProtocol> protocols = List.of(HttpProtocol.HTTP11);
+
+    /**
+     * Encoding of request and response bodies. The binary formats keep amounts exact as a scale and an
+     * unscaled integer, and are several times cheaper to encode and parse than JSON.
+     */
+    @NotNull
+    private WireFormat wireFormat = WireFormat.JSON;
+
+    @DurationMin(millis = 1)
+    private Duration connectTimeout = Duration.ofSeconds(2);
+
+    /**
+     * Response timeout for single transaction calls.
+     */
+    @DurationMin(millis = 1)
+    private Duration responseTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Response timeout for calls to the bulk endpoint, which do more work per request.
+     */
+    @DurationMin(millis = 1)
+    private Duration batchResponseTimeout = Duration.ofSeconds(30);
+
+    @Valid
+    private final ConnectionPool connectionPool = new ConnectionPool();
+
+    @Valid
+    private final ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+
+    @Valid
+    private final AccountRateLimit accountRateLimit = new AccountRateLimit();
+
+    @Valid
+    private final MicroBatching microBatching = new MicroBatching();
+
+    @Valid
+    private final Compression compression = new Compression();
+
+    public enum WireFormat {
+        JSON(MediaType.APPLICATION_JSON),
+        /**
+         * RFC 8949 CBOR; amounts are decimal fractions (tag 4), a scale and a long mantissa.
+         */
+        CBOR(MediaType.APPLICATION_CBOR),
+        /**
+         * Jackson Smile; repeated field names are sent once and referenced afterwards.
+         */
+        SMILE(new MediaType("application", "x-jackson-smile"));
+
+        private final MediaType mediaType;
+
+        WireFormat(MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+    }
+
+    @Data
+    public static class ConnectionPool {
+
+        /**
+         * Maximum pooled connections; with HTTP/2 each connection multiplexes up to max-concurrent-streams calls.
+         */
+        @Min(1)
+        private int maxConnections = 500;
+
+        @Min(1)
+        private int maxConcurrentStreams = 100;
+
+        /**
+         * Callers allowed to wait for a connection before new acquisitions are rejected.
+         */
+        @Min(1)
+        private int pendingAcquireMaxCount = 1000;
+
+        @DurationMin(millis = 1)
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Keep below the transaction service's keep-alive timeout so the pool closes idle connections first.
+         */
+        @DurationMin(millis = 1)
+        private Duration maxIdleTime = Duration.ofSeconds(20);
+
+        @DurationMin(millis = 1)
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+
+        @DurationMin(millis = 1)
+        private Duration evictionInterval = Duration.ofSeconds(30);
+
+        /**
+         * Publish reactor.netty.connection.provider.* pool gauges to Micrometer.
+         */
+        private boolean metricsEnabled = true;
+    }
+
+    @Data
+    public static class Compression {
+
+        /**
+         * Gzip request bodies and ask for gzip responses. Only worth it when the link to the transaction
+         * service is short of bandwidth, as it costs CPU on both sides.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Smaller request bodies are sent as they are; gzip saves little on them and adds its own header.
+         */
+        @NotNull
+        private DataSize minRequestSize = DataSize.ofKilobytes(1);
+    }
+
+    @Data
+    public static class MicroBatching {
+
+        /**
+         * Coalesce single transaction calls into calls to the bulk endpoint.
+         */
+        private boolean enabled = false;
+
+        /**
+         * A micro-batch is sent as soon as it holds this many transactions...
+         */
+        @Min(1)
+        private int maxSize = 100;
+
+        /**
+         * ...or when its oldest transaction has waited this long.
+         */
+        @DurationMin(millis = 1)
+        private Duration linger = Duration.ofMillis(10);
+
+        @Min(1)
+        private int maxBatchesInFlight = 16;
+    }
+
+    public enum LimitAlgorithm {
+        /**
+         * Additive increase while calls succeed, multiplicative decrease on timeouts and overload responses.
+         */
+        AIMD,
+        /**
+         * Follows the ratio of long-term to recent latency, shrinking as queueing delay builds up downstream.
+         */
+        GRADIENT
+    }
+
+    @Data
+    public static class ConcurrencyLimit {
+
+        /**
+         * Adapt the number of calls in flight to the transaction service to its observed latency and errors.
+         */
+        private boolean enabled = true;
+
+        @NotNull
+        private LimitAlgorithm algorithm = LimitAlgorithm.GRADIENT;
+
+        @Min(1)
+        private int initialLimit = 100;
+
+        @Min(1)
+        private int minLimit = 10;
+
+        @Min(1)
+        private int maxLimit = 1000;
+
+        /**
+         * Factor the limit is multiplied by when a call times out or the service reports overload.
+         */
+        @DecimalMin("0.1")
+        @DecimalMax("0.99")
+        private double backoffRatio = 0.9;
+
+        /**
+         * Recent latency may exceed the long-term latency by this factor before the gradient limit shrinks.
+         */
+        @DecimalMin("1.0")
+        private double tolerance = 1.5;
+
+        /**
+         * Calls waiting for a slot beyond this number are rejected.
+         */
+        @Min(0)
+        private int maxPending = 10_000;
+
+        /**
+         * Calls waiting for a slot longer than this are rejected.
+         */
+        @DurationMin(millis = 1)
+        private Duration maxWait = Duration.ofSeconds(5);
+    }
+
+    /**
+     * Token bucket per destination account. The global calls-per-second ceiling is the
+     * {@code transaction-service-rl} Resilience4j rate limiter.
+     */
+    @Data
+    public static class AccountRateLimit {
+
+        private boolean enabled = false;
+
+        /**
+         * Sustained transactions per second sent to one destination account.
+         */
+        @DecimalMin("0.001")
+        private double ratePerSecond = 50;
+
+        /**
+         * Transactions one destination account may receive back to back before pacing starts.
+         */
+        @Min(1)
+        private int burst = 50;
+
+        /**
+         * A transaction that would have to wait longer than this for its account's bucket is rejected.
+         */
+        @DurationMin(millis = 0)
+        private Duration maxWait = Duration.ofSeconds(5);
+
+        @Min(1)
+        private long maxAccounts = 100_000;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.bulk_transactions.controller;
+
+import com.example.bulk_transactions.dto.BulkJobResultsPage;
+import com.example.bulk_transactions.dto.BulkJobStatusResponse;
+import com.example.bulk_transactions.dto.BulkTransactionRequest;
+import com.example.bulk_transactions.service.BulkJobService;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.net.URI;
+import java.security.Principal;
+
+@RestController
+@RequestMapping("/api/v1/bulk-transactions/jobs")
+public class BulkJobController {
+
+    private final BulkJobService bulkJobService;
+
+    public BulkJobController(BulkJobService bulkJobService) {
+        this.bulkJobService = bulkJobService;
+    }
+
+    @PostMapping
+    public ResponseEntity<BulkJobStatusResponse> submitJob(@Valid @RequestBody BulkTransactionRequest request, Principal principal) {
+        BulkJobStatusResponse status = bulkJobService.submit(request, principal.getName());
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{jobId}")
+                .buildAndExpand(status.getJobId())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(status);
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<BulkJobStatusResponse> getJobStatus(@PathVariable String jobId, Principal principal) {
+        return ResponseEntity.ok(bulkJobService.getStatus(jobId, principal.getName()));
+    }
+
+    @GetMapping("/{jobId}/results")
+    public ResponseEntity<BulkJobResultsPage> getJobResults(@PathVariable String jobId,
+                                                            @RequestParam(defaultValue = "0") int page,
+                                                            @RequestParam(defaultValue = "100") int size,
+                                                            Principal principal) {
+        return ResponseEntity.ok(bulkJobService.getResults(jobId, principal.getName(), page, size));
+    }
+}
@@ -2,27 +2,90 @@ package com.example.bulk_transactions.controller;
 
 import com.example.bulk_transactions.dto.BulkTransactionRequest;
 import com.example.bulk_transactions.dto.BulkTransactionResponse;
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import com.example.bulk_transactions.exception.BadRequestException;
 import com.example.bulk_transactions.service.BulkTransactionService;
+import com.example.bulk_transactions.service.CsvTransactionReader;
+import com.example.bulk_transactions.service.StreamingBulkRequestReader;
+import com.example.bulk_transactions.service.StreamingBulkRequestReader.StreamingBulkRequest;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/api/v1/bulk-transactions")
 public class BulkTransactionController {
 
+    private static final String TEXT_CSV = "text/csv";
+
     private final BulkTransactionService service;
+    private final StreamingBulkRequestReader streamingReader;
+    private final CsvTransactionReader csvReader;
 
-    public BulkTransactionController(BulkTransactionService service) {
+    public BulkTransactionController(BulkTransactionService service, StreamingBulkRequestReader streamingReader,
+                                     CsvTransactionReader csvReader) {
         this.service = service;
+        this.streamingReader = streamingReader;
+        this.csvReader = csvReader;
     }
 
     @PostMapping
-    public ResponseEntity<BulkTransactionResponse> processBulkTransactions(@Valid @RequestBody BulkTransactionRequest request) {
-        BulkTransactionResponse response = service.processBulkTransactions(request);
-        return ResponseEntity.ok(response);
+    public Mono<ResponseEntity<BulkTransactionResponse>> processBulkTransactions(@Valid @RequestBody BulkTransactionRequest request) {
+        return service.processBulkTransactions(request).map(ResponseEntity::ok);
+    }
+
+    @PostMapping(value = "/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<TransactionServiceResult> streamBulkTransactions(@Valid @RequestBody BulkTransactionRequest request) {
+        return service.streamTransactions(request.getBatchId(), Flux.fromIterable(request.getTransactions()));
+    }
+
+    /**
+     * Accepts very large batches without binding them into memory: either a {@code BulkTransactionRequest}
+     * JSON document with {@code batchId} ahead of {@code transactions}, or an NDJSON or CSV body of
+     * transactions with the {@code batchId} request parameter. Results are streamed back as they complete.
+     */
+    @PostMapping(value = "/ingest",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV},
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<TransactionServiceResult> ingestBulkTransactions(@RequestParam(required = false) String batchId,
+                                                                 HttpServletRequest request) throws IOException {
+        MediaType contentType = MediaType.parseMediaType(request.getContentType());
+        if (MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+            return service.streamUnvalidatedTransactions(requireBatchId(batchId), streamingReader.readNdjson(request.getInputStream()));
+        }
+        if (MediaType.parseMediaType(TEXT_CSV).isCompatibleWith(contentType)) {
+            return service.streamUnvalidatedTransactions(requireBatchId(batchId), csvReader.read(request.getInputStream()));
+        }
+        StreamingBulkRequest streamed = streamingReader.readJson(request.getInputStream());
+        return service.streamUnvalidatedTransactions(streamed.batchId(), streamed.transactions());
+    }
+
+    /**
+     * Multipart upload of a CSV payment file in the {@code file} part, streamed like a raw CSV body.
+     */
+    @PostMapping(value = "/ingest",
+            consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<TransactionServiceResult> ingestCsvFile(@RequestParam(required = false) String batchId,
+                                                        @RequestParam("file") MultipartFile file) throws IOException {
+        return service.streamUnvalidatedTransactions(requireBatchId(batchId), csvReader.read(file.getInputStream()));
+    }
+
+    private static String requireBatchId(String batchId) {
+        if (batchId == null || batchId.isBlank()) {
+            throw new BadRequestException("BatchId is required");
+        }
+        return batchId;
     }
 }
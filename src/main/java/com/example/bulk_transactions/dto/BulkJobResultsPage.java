@@ -0,0 +1,21 @@
+package com.example.bulk_transactions.dto;
+
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class BulkJobResultsPage {
+    private String jobId;
+    private int page;
+    private int size;
+    /**
+     * Number of results available so far; grows until the job finishes.
+     */
+    private int availableResults;
+    private boolean last;
+    private List<TransactionServiceResult> results;
+}
@@ -0,0 +1,21 @@
+package com.example.bulk_transactions.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+public class BulkJobStatusResponse {
+    private String jobId;
+    private String batchId;
+    private String state;
+    private int total;
+    private int completed;
+    private int succeeded;
+    private int failed;
+    private int skipped;
+    private Instant submittedAt;
+    private Instant finishedAt;
+}
@@ -0,0 +1,155 @@
+package com.example.bulk_transactions.dto;
+
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Results of a batch stored column by column: the transaction id, a one-byte status code and an int
+ * reason code per transaction. Statuses and failure reasons repeat across a batch, so each distinct
+ * one is stored once in a small dictionary, and ids are the request's own strings, so a result costs
+ * 9 bytes plus array slack instead of a {@link TransactionServiceResult} and its list slot.
+ *
+ * <p>Status codes fit a byte, so a batch holds up to 128 distinct statuses. The transaction service only
+ * knows a handful; any status past that range is recorded as FAILED, keeping its reason.
+ *
+ * <p>Reading it as a list creates each {@link TransactionServiceResult} on demand; serialization
+ * writes the columns straight to the generator without creating them at all.
+ *
+ * <p>Single writer. A reader on another thread must learn how many results to read through a
+ * happens-before edge with the writer, as {@code BulkJob} does with its completed counter; within that
+ * prefix entries are never changed.
+ */
+@JsonSerialize(using = CompactTransactionResults.Serializer.class)
+public final class CompactTransactionResults extends AbstractList<TransactionServiceResult> implements RandomAccess {
+
+    private static final int NO_REASON = -1;
+    private static final int MAX_STATUSES = Byte.MAX_VALUE + 1;
+    private static final String FAILED = "FAILED";
+
+    private final Dictionary statusDictionary = new Dictionary();
+    private final Dictionary reasonDictionary = new Dictionary();
+    private String[] transactionIds;
+    private byte[] statuses;
+    private int[] reasons;
+    private int size;
+
+    public CompactTransactionResults(int expectedSize) {
+        int capacity = Math.max(expectedSize, 1);
+        this.transactionIds = new String[capacity];
+        this.statuses = new byte[capacity];
+        this.reasons = new int[capacity];
+        // coded up front, so the fallback for statuses past the code range always has a code
+        statusDictionary.code(FAILED);
+    }
+
+    @Override
+    public boolean add(TransactionServiceResult result) {
+        if (size == statuses.length) {
+            int capacity = size + (size >> 1) + 1;
+            transactionIds = Arrays.copyOf(transactionIds, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            reasons = Arrays.copyOf(reasons, capacity);
+        }
+        String status = result.getStatus();
+        if (statusDictionary.size() == MAX_STATUSES && !statusDictionary.contains(status)) {
+            status = FAILED;
+        }
+        transactionIds[size] = result.getTransactionId();
+        statuses[size] = (byte) statusDictionary.code(status);
+        reasons[size] = reasonDictionary.code(result.getReason());
+        size++;
+        return true;
+    }
+
+    @Override
+    public TransactionServiceResult get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return new TransactionServiceResult(transactionIds[index], status(index), reason(index));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public String status(int index) {
+        return statusDictionary.get(statuses[index]);
+    }
+
+    public String reason(int index) {
+        return reasonDictionary.get(reasons[index]);
+    }
+
+    /**
+     * Distinct strings in insertion order, with null as {@link #NO_REASON}. The entries array is only
+     * replaced by a larger copy, so a reader holding any code already published finds its entry.
+     */
+    private static final class Dictionary {
+
+        private final Map<String, Integer> codes = new HashMap<>();
+        private String[] entries = new String[4];
+
+        private int code(String value) {
+            if (value == null) {
+                return NO_REASON;
+            }
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            int next = codes.size();
+            if (next == entries.length) {
+                entries = Arrays.copyOf(entries, next * 2);
+            }
+            entries[next] = value;
+            codes.put(value, next);
+            return next;
+        }
+
+        private boolean contains(String value) {
+            return value == null || codes.containsKey(value);
+        }
+
+        private int size() {
+            return codes.size();
+        }
+
+        private String get(int code) {
+            return code == NO_REASON ? null : entries[code];
+        }
+    }
+
+    public static final class Serializer extends StdSerializer<CompactTransactionResults> {
+
+        public Serializer() {
+            super(CompactTransactionResults.class);
+        }
+
+        @Override
+        public void serialize(CompactTransactionResults results, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            int size = results.size;
+            generator.writeStartArray(results, size);
+            for (int i = 0; i < size; i++) {
+                generator.writeStartObject();
+                generator.writeStringField("transactionId", results.transactionIds[i]);
+                generator.writeStringField("status", results.status(i));
+                generator.writeStringField("reason", results.reason(i));
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.bulk_transactions.dto.client;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * One transaction of a call to the bulk endpoint, with the key the transaction service deduplicates it
+ * under; a single call carries the same key as its {@code Idempotency-Key} header.
+ */
+@Data
+@AllArgsConstructor
+public class TransactionServiceBatchItem {
+    private String transactionId;
+    private String fromAccount;
+    private String toAccount;
+    private BigDecimal amount;
+    private String idempotencyKey;
+
+    public static TransactionServiceBatchItem of(TransactionServiceRequest transaction, String idempotencyKey) {
+        return new TransactionServiceBatchItem(transaction.getTransactionId(), transaction.getFromAccount(),
+                transaction.getToAccount(), transaction.getAmount(), idempotencyKey);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.bulk_transactions.exception;
+
+/**
+ * A call shed by our own concurrency limit before it reached the transaction service, so it says
+ * nothing about the service's health and is neither retried nor counted by the circuit breaker.
+ */
+public class ConcurrencyLimitExceededException extends TransactionServiceException {
+
+    public ConcurrencyLimitExceededException(String message) {
+        super(message, 503);
+    }
+}
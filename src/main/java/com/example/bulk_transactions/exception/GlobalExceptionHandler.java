@@ -1,7 +1,9 @@
 package com.example.bulk_transactions.exception;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -55,6 +57,35 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(ex, HttpStatus.BAD_REQUEST, "Bad Request");
     }
 
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Map<String, Object>> handleTooManyRequests(TooManyRequestsException ex) {
+        return buildErrorResponse(ex, HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests");
+    }
+
+    @ExceptionHandler(PayloadTooLargeException.class)
+    public ResponseEntity<Map<String, Object>> handlePayloadTooLarge(PayloadTooLargeException ex) {
+        return buildErrorResponse(ex, HttpStatus.PAYLOAD_TOO_LARGE, "Payload Too Large");
+    }
+
+    /**
+     * Message converters wrap whatever the body stream throws, so a body rejected while it is being
+     * decompressed arrives here and still gets its 413.
+     */
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<Map<String, Object>> handleMessageNotReadable(HttpMessageNotReadableException ex) {
+        for (Throwable cause = ex.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof PayloadTooLargeException tooLarge) {
+                return handlePayloadTooLarge(tooLarge);
+            }
+        }
+        return buildErrorResponse(ex, HttpStatus.BAD_REQUEST, "Bad Request");
+    }
+
+    @ExceptionHandler(UnsupportedContentEncodingException.class)
+    public ResponseEntity<Map<String, Object>> handleUnsupportedContentEncoding(UnsupportedContentEncodingException ex) {
+        return buildErrorResponse(ex, HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Unsupported Media Type");
+    }
+
     @ExceptionHandler(TransactionServiceException.class)
     public ResponseEntity<Map<String, Object>> handleTransactionServiceException(TransactionServiceException ex) {
         Map<String, Object> body = new HashMap<>();
@@ -72,6 +103,7 @@ public class GlobalExceptionHandler {
         body.put("status", status.value());
         body.put("error", error);
         body.put("message", ex.getMessage());
-        return new ResponseEntity<>(body, status);
+        // explicit content type, so errors from streaming (NDJSON/SSE) endpoints still render as JSON
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(body);
     }
 }
\ No newline at end of file
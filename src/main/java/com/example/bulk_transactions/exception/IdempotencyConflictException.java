@@ -0,0 +1,7 @@
+package com.example.bulk_transactions.exception;
+
+public class IdempotencyConflictException extends RuntimeException {
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.bulk_transactions.exception;
+
+public class PayloadTooLargeException extends RuntimeException {
+    public PayloadTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.bulk_transactions.exception;
+
+public class RetryBudgetExhaustedException extends TransactionServiceException {
+
+    public RetryBudgetExhaustedException(String message) {
+        super(message, 503);
+    }
+}
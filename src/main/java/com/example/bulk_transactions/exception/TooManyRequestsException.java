@@ -0,0 +1,7 @@
+package com.example.bulk_transactions.exception;
+
+public class TooManyRequestsException extends RuntimeException {
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+}
@@ -14,4 +14,10 @@ public class TransactionServiceException extends RuntimeException {
         this.serviceName = "TransactionService";
     }
 
+    public TransactionServiceException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+        this.serviceName = "TransactionService";
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.example.bulk_transactions.exception;
+
+public class UnsupportedContentEncodingException extends RuntimeException {
+    public UnsupportedContentEncodingException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.bulk_transactions.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "bulk_batches", indexes = @Index(name = "idx_bulk_batches_status", columnList = "status"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class Batch {
+
+    public static final int INSTANCE_ID_LENGTH = 64;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bulk_batches_seq")
+    @SequenceGenerator(name = "bulk_batches_seq", sequenceName = "bulk_batches_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "job_id", nullable = false, unique = true, length = 36)
+    private String jobId;
+
+    @Column(name = "batch_id", nullable = false)
+    private String batchId;
+
+    @Column(nullable = false, length = 50)
+    private String owner;
+
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    @Column(nullable = false)
+    private int total;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    /**
+     * The instance running the batch, which holds it until {@link #leaseExpiresAt}.
+     */
+    @Column(name = "instance_id", length = INSTANCE_ID_LENGTH)
+    private String instanceId;
+
+    @Column(name = "lease_expires_at")
+    private Instant leaseExpiresAt;
+}
@@ -0,0 +1,47 @@
+package com.example.bulk_transactions.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * A transaction as submitted in a persisted batch, kept so an interrupted batch can be resumed.
+ */
+@Entity
+@Table(name = "batch_transactions", indexes = @Index(name = "idx_batch_transactions_batch", columnList = "batch_pk, item_position"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class BatchTransaction {
+
+    public static final int AMOUNT_LENGTH = 64;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "batch_transactions_seq")
+    @SequenceGenerator(name = "batch_transactions_seq", sequenceName = "batch_transactions_seq", allocationSize = 500)
+    private Long id;
+
+    @Column(name = "batch_pk", nullable = false)
+    private Long batchPk;
+
+    @Column(name = "item_position", nullable = false)
+    private int position;
+
+    @Column(name = "transaction_id", nullable = false)
+    private String transactionId;
+
+    @Column(name = "from_account", nullable = false)
+    private String fromAccount;
+
+    @Column(name = "to_account", nullable = false)
+    private String toAccount;
+
+    /**
+     * {@link BigDecimal#toString()} of the submitted amount; a DECIMAL column would round it to its scale.
+     */
+    @Column(nullable = false, length = AMOUNT_LENGTH)
+    private String amount;
+}
@@ -0,0 +1,44 @@
+package com.example.bulk_transactions.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "processed_transactions")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ProcessedTransaction {
+
+    /**
+     * SHA-256 of owner, batchId and transactionId, as sent in the {@code Idempotency-Key} header.
+     */
+    @Id
+    @Column(name = "idempotency_key", length = 64)
+    private String idempotencyKey;
+
+    @Column(nullable = false, length = 50)
+    private String owner;
+
+    @Column(name = "batch_id", nullable = false)
+    private String batchId;
+
+    /**
+     * SHA-256 of the accounts and amount, to tell a replay from a different transfer under the same id.
+     */
+    @Column(name = "request_fingerprint", nullable = false, length = 64)
+    private String requestFingerprint;
+
+    @Column(name = "transaction_id", nullable = false)
+    private String transactionId;
+
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    @Column(name = "completed_at", nullable = false)
+    private Instant completedAt;
+}
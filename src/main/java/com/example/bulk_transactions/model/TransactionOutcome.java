@@ -0,0 +1,41 @@
+package com.example.bulk_transactions.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "transaction_outcomes", indexes = @Index(name = "idx_transaction_outcomes_batch", columnList = "batch_pk, item_position"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class TransactionOutcome {
+
+    public static final int REASON_LENGTH = 1000;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_outcomes_seq")
+    @SequenceGenerator(name = "transaction_outcomes_seq", sequenceName = "transaction_outcomes_seq", allocationSize = 500)
+    private Long id;
+
+    @Column(name = "batch_pk", nullable = false)
+    private Long batchPk;
+
+    @Column(name = "item_position", nullable = false)
+    private int position;
+
+    @Column(name = "transaction_id", nullable = false)
+    private String transactionId;
+
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    @Column(length = REASON_LENGTH)
+    private String reason;
+
+    @Column(name = "completed_at", nullable = false)
+    private Instant completedAt;
+}
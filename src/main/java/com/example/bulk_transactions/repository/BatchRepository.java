@@ -0,0 +1,40 @@
+package com.example.bulk_transactions.repository;
+
+import com.example.bulk_transactions.model.Batch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface BatchRepository extends JpaRepository<Batch, Long> {
+    /**
+     * Batches in {@code status} that are either held by {@code instanceId} or whose lease has run out.
+     */
+    @Query("select b from Batch b where b.status = :status"
+            + " and (b.instanceId = :instanceId or b.leaseExpiresAt is null or b.leaseExpiresAt < :now)")
+    List<Batch> findClaimable(@Param("status") String status, @Param("instanceId") String instanceId, @Param("now") Instant now);
+
+    /**
+     * Takes the lease of a batch on the same terms as {@link #findClaimable}; returns 0 when another
+     * instance claimed or renewed it in the meantime.
+     */
+    @Modifying
+    @Query("update Batch b set b.instanceId = :instanceId, b.leaseExpiresAt = :until where b.id = :id and b.status = :status"
+            + " and (b.instanceId = :instanceId or b.leaseExpiresAt is null or b.leaseExpiresAt < :now)")
+    int claim(@Param("id") Long id, @Param("status") String status, @Param("instanceId") String instanceId,
+              @Param("now") Instant now, @Param("until") Instant until);
+
+    @Modifying
+    @Query("update Batch b set b.leaseExpiresAt = :until where b.id in :ids and b.instanceId = :instanceId")
+    int renewLeases(@Param("ids") Collection<Long> ids, @Param("instanceId") String instanceId, @Param("until") Instant until);
+
+    @Modifying
+    @Query("update Batch b set b.status = :status, b.finishedAt = :finishedAt where b.id = :id")
+    int markFinished(@Param("id") Long id, @Param("status") String status, @Param("finishedAt") Instant finishedAt);
+}
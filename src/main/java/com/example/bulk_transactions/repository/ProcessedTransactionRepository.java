@@ -0,0 +1,9 @@
+package com.example.bulk_transactions.repository;
+
+import com.example.bulk_transactions.model.ProcessedTransaction;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProcessedTransactionRepository extends JpaRepository<ProcessedTransaction, String> {
+}
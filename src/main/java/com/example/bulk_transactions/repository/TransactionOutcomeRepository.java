@@ -0,0 +1,12 @@
+package com.example.bulk_transactions.repository;
+
+import com.example.bulk_transactions.model.TransactionOutcome;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TransactionOutcomeRepository extends JpaRepository<TransactionOutcome, Long> {
+    List<TransactionOutcome> findByBatchPkOrderByPosition(Long batchPk);
+}
@@ -1,7 +1,13 @@
 package com.example.bulk_transactions.security;
 
+import com.example.bulk_transactions.config.AuthProperties;
 import com.example.bulk_transactions.model.AppUser;
 import com.example.bulk_transactions.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -11,14 +17,57 @@ import org.springframework.stereotype.Service;
 @Service
 public class CustomerDetailsService implements UserDetailsService {
 
+    static final String ROLE_CLAIM = "role";
+
     private final UserRepository userRepository;
+    private final AuthProperties properties;
+
+    /**
+     * Users loaded while authenticating requests. Unknown usernames are not cached, so a user
+     * becomes visible as soon as it is registered.
+     */
+    private final Cache<String, UserDetails> userCache;
 
-    public CustomerDetailsService(UserRepository userRepository) {
+    public CustomerDetailsService(UserRepository userRepository, AuthProperties properties, MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
+        this.properties = properties;
+        this.userCache = Caffeine.newBuilder()
+                .maximumSize(properties.getUserCache().getMaxEntries())
+                .expireAfterWrite(properties.getUserCache().getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, userCache, "user-details");
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        if (!properties.getUserCache().isEnabled()) {
+            return loadFromRepository(username);
+        }
+        return userCache.get(username, this::loadFromRepository);
+    }
+
+    /**
+     * Resolves the principal for a verified token: straight from its role claim when role claims are
+     * trusted, otherwise through {@link #loadUserByUsername}.
+     */
+    public UserDetails loadUserByClaims(Claims claims) throws UsernameNotFoundException {
+        String role = claims.get(ROLE_CLAIM, String.class);
+        if (properties.isTrustRoleClaims() && role != null) {
+            return User.builder()
+                    .username(claims.getSubject())
+                    .password("")
+                    .authorities(role)
+                    .build();
+        }
+        return loadUserByUsername(claims.getSubject());
+    }
+
+    public void evict(String username) {
+        userCache.invalidate(username);
+    }
+
+    private UserDetails loadFromRepository(String username) {
         AppUser appUser = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
 
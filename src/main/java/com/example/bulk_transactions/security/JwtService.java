@@ -1,7 +1,11 @@
 package com.example.bulk_transactions.security;
 
 import com.example.bulk_transactions.model.AppUser;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -10,20 +14,42 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
 import java.util.function.Function;
 
 @Component
 public class JwtService {
 
-    @Value("${jwt.secret}")
-    public String secretKey;
+    private final long expirationTime;
+    private final SecretKey signInKey;
+    private final JwtParser parser;
 
-    @Value("${jwt.expiration}")
-    public long expirationTime;
+    /**
+     * Claims of tokens whose signature has already been verified, keyed by a SHA-256 of the token so
+     * the cache never holds the credential itself. Entries expire together with the token.
+     */
+    private final Cache<String, Claims> verifiedClaims;
+
+    public JwtService(@Value("${jwt.secret}") String secretKey,
+                      @Value("${jwt.expiration}") long expirationTime,
+                      @Value("${jwt.claims-cache.max-entries:10000}") long claimsCacheMaxEntries) {
+        this.expirationTime = expirationTime;
+        this.signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.parser = Jwts.parser().verifyWith(signInKey).build();
+        this.verifiedClaims = Caffeine.newBuilder()
+                .maximumSize(claimsCacheMaxEntries)
+                .expireAfter(Expiry.creating((String tokenHash, Claims claims) ->
+                        Duration.ofMillis(Math.max(0, claims.getExpiration().getTime() - System.currentTimeMillis()))))
+                .build();
+    }
 
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -34,8 +60,29 @@ public class JwtService {
         return claimsResolver.apply(claims);
     }
 
+    /**
+     * Verifies the token and returns its claims. Tokens seen before are answered from the cache
+     * without checking the signature again.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, badly signed or expired
+     */
+    public Claims extractAllClaims(String token) {
+        String tokenHash = hash(token);
+        Claims cached = verifiedClaims.getIfPresent(tokenHash);
+        if (cached != null) {
+            return cached;
+        }
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        if (claims.getExpiration() != null) {
+            verifiedClaims.put(tokenHash, claims);
+        }
+        return claims;
+    }
+
     public String generateToken(AppUser userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CustomerDetailsService.ROLE_CLAIM, userDetails.getRole());
+        return generateToken(claims, userDetails);
     }
 
     public String generateToken(Map<String, Object> extraClaims, AppUser userDetails) {
@@ -46,34 +93,28 @@ public class JwtService {
                 .subject(userDetails.getUsername())
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(Date.from(expiry))
-                .signWith(getSignInKey())
+                .signWith(signInKey)
                 .compact();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return isTokenValid(extractAllClaims(token), userDetails);
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !isTokenExpired(claims);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parser()
-                .verifyWith(getSignInKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    private boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration() != null && claims.getExpiration().before(new Date());
     }
 
-    private SecretKey getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 }
@@ -0,0 +1,168 @@
+package com.example.bulk_transactions.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Orders the transactions of one batch per source account. Accounts are hashed to a fixed number of
+ * lanes; a lane runs one transaction at a time in the order they were submitted, and lanes run in
+ * parallel. Two transactions debiting the same account therefore never reach the transaction service
+ * together and contend on its account lock, and they complete in a deterministic order.
+ */
+class AccountLanes {
+
+    private final Lane[] lanes;
+    private final Metrics metrics;
+
+    AccountLanes(int lanes, Metrics metrics) {
+        this.lanes = new Lane[lanes];
+        this.metrics = metrics;
+    }
+
+    /**
+     * Defers subscribing to {@code task} until every task submitted earlier for a lane-mate of
+     * {@code account} has completed.
+     */
+    <T> Mono<T> submit(String account, Mono<T> task) {
+        return Mono.create(sink -> {
+            Task<T> queued = new Task<>(task, sink);
+            sink.onCancel(queued::cancel);
+            lane(account).enqueue(queued);
+        });
+    }
+
+    private synchronized Lane lane(String account) {
+        // spread the hash so accounts that differ only in their last characters do not share a lane
+        int index = Math.floorMod(account.hashCode() * 0x9E3779B9, lanes.length);
+        Lane lane = lanes[index];
+        if (lane == null) {
+            lane = new Lane();
+            lanes[index] = lane;
+        }
+        return lane;
+    }
+
+    /**
+     * Meters shared by the lanes of every batch.
+     */
+    static final class Metrics {
+
+        private final AtomicInteger queued = new AtomicInteger();
+        private final Timer waitTimer;
+        private final Counter contended;
+
+        Metrics(MeterRegistry meterRegistry) {
+            this.waitTimer = Timer.builder("bulk.lanes.wait")
+                    .description("Time transactions waited behind earlier transactions of the same lane")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            this.contended = Counter.builder("bulk.lanes.contended")
+                    .description("Transactions that had to wait for their lane")
+                    .register(meterRegistry);
+            Gauge.builder("bulk.lanes.queued", queued, AtomicInteger::get)
+                    .description("Transactions waiting for their lane across all batches")
+                    .register(meterRegistry);
+        }
+    }
+
+    private final class Lane {
+
+        private final ArrayDeque<Task<?>> pending = new ArrayDeque<>();
+        private final AtomicInteger drainWip = new AtomicInteger();
+        private boolean busy;
+
+        private void enqueue(Task<?> task) {
+            synchronized (this) {
+                if (busy || !pending.isEmpty()) {
+                    metrics.contended.increment();
+                }
+                pending.add(task);
+                metrics.queued.incrementAndGet();
+            }
+            drain();
+        }
+
+        private void release() {
+            synchronized (this) {
+                busy = false;
+            }
+            drain();
+        }
+
+        /**
+         * Starts the next task whenever the lane is free. A task completing synchronously re-enters
+         * through {@link #release}, so only one thread drains at a time and a long lane does not recurse.
+         */
+        private void drain() {
+            if (drainWip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                Task<?> task;
+                while ((task = next()) != null) {
+                    task.start(this);
+                }
+                missed = drainWip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private synchronized Task<?> next() {
+            while (!busy && !pending.isEmpty()) {
+                Task<?> task = pending.poll();
+                metrics.queued.decrementAndGet();
+                if (!task.cancelled) {
+                    busy = true;
+                    return task;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final class Task<T> {
+
+        private final Mono<T> task;
+        private final MonoSink<T> sink;
+        private final long enqueuedAt = System.nanoTime();
+        private volatile boolean cancelled;
+        private volatile Disposable running;
+
+        private Task(Mono<T> task, MonoSink<T> sink) {
+            this.task = task;
+            this.sink = sink;
+        }
+
+        private void start(Lane lane) {
+            metrics.waitTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+            // the lane is freed before the outcome is passed on, so the next task is not held up by the subscriber;
+            // the task is subscribed from the drain, so the submitter's context is handed on explicitly
+            running = task
+                    .doOnSuccess(value -> lane.release())
+                    .doOnError(error -> lane.release())
+                    .doOnCancel(lane::release)
+                    .contextWrite(sink.contextView())
+                    .subscribe(sink::success, sink::error, sink::success);
+            if (cancelled) {
+                running.dispose();
+            }
+        }
+
+        private void cancel() {
+            cancelled = true;
+            Disposable current = running;
+            if (current != null) {
+                current.dispose();
+            }
+        }
+    }
+}
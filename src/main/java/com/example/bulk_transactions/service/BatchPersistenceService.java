@@ -0,0 +1,338 @@
+package com.example.bulk_transactions.service;
+
+import com.example.bulk_transactions.config.BulkProcessingProperties;
+import com.example.bulk_transactions.dto.BulkTransactionRequest;
+import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import com.example.bulk_transactions.exception.BadRequestException;
+import com.example.bulk_transactions.model.Batch;
+import com.example.bulk_transactions.model.BatchTransaction;
+import com.example.bulk_transactions.model.TransactionOutcome;
+import com.example.bulk_transactions.repository.BatchRepository;
+import com.example.bulk_transactions.repository.BatchTransactionRepository;
+import com.example.bulk_transactions.repository.TransactionOutcomeRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Durable storage for asynchronous jobs. A batch and its transactions are inserted up front; outcomes
+ * are appended through a write-behind buffer drained by a single writer thread, so the fan-out never
+ * waits on the database and outcomes of a batch are stored in the order they were produced. Inserts
+ * rely on Hibernate JDBC batching, which is why the entities use pooled sequence ids rather than IDENTITY.
+ * A running batch is leased to the instance running it, which renews the lease while it holds the batch,
+ * so instances sharing the database only resume their own batches and those whose holder went away.
+ */
+@Service
+@Slf4j
+public class BatchPersistenceService {
+
+    static final String RUNNING = "RUNNING";
+    static final String FAILED = "FAILED";
+
+    private sealed interface PendingWrite permits OutcomeWrite, BatchFinish {
+    }
+
+    private record OutcomeWrite(long batchPk, int position, TransactionServiceResult result, Instant completedAt) implements PendingWrite {
+    }
+
+    private record BatchFinish(long batchPk, String status, Instant finishedAt) implements PendingWrite {
+    }
+
+    /**
+     * A batch left unfinished by a previous run. {@code stored} has one slot per position of the batch,
+     * holding the outcome already stored there or null; {@code remaining} are the transactions at the
+     * null slots, in batch order.
+     */
+    record ResumableBatch(long batchPk, String jobId, String batchId, String owner, int total,
+                          List<TransactionServiceResult> stored, List<TransactionServiceRequest> remaining) {
+    }
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final BatchRepository batchRepository;
+    private final BatchTransactionRepository batchTransactionRepository;
+    private final TransactionOutcomeRepository transactionOutcomeRepository;
+    private final BulkProcessingProperties.Persistence properties;
+    private final Sinks.Many<PendingWrite> pendingWrites = Sinks.many().unicast().onBackpressureBuffer();
+    private final Scheduler writer = Schedulers.newSingle("batch-write-behind");
+    private final CompletableFuture<Void> drained = new CompletableFuture<>();
+    private final AtomicInteger queuedWrites = new AtomicInteger();
+    private final Set<Long> failedBatches = ConcurrentHashMap.newKeySet();
+    private final Set<Long> heldBatches = ConcurrentHashMap.newKeySet();
+
+    public BatchPersistenceService(EntityManager entityManager, TransactionTemplate transactionTemplate,
+                                   BatchRepository batchRepository, BatchTransactionRepository batchTransactionRepository,
+                                   TransactionOutcomeRepository transactionOutcomeRepository, BulkProcessingProperties properties,
+                                   MeterRegistry meterRegistry) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.batchRepository = batchRepository;
+        this.batchTransactionRepository = batchTransactionRepository;
+        this.transactionOutcomeRepository = transactionOutcomeRepository;
+        this.properties = properties.getPersistence();
+        Gauge.builder("bulk.persistence.queued.writes", queuedWrites, AtomicInteger::get)
+                .description("Outcomes and batch completions waiting in the write-behind buffer")
+                .register(meterRegistry);
+        pendingWrites.asFlux()
+                .bufferTimeout(this.properties.getFlushSize(), this.properties.getFlushInterval(), writer, true)
+                .publishOn(writer)
+                .subscribe(this::write, drained::completeExceptionally, () -> drained.complete(null));
+        long renewEvery = this.properties.getLease().toMillis() / 3;
+        writer.schedulePeriodically(this::renewLeases, renewEvery, renewEvery, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public long createBatch(String jobId, BulkTransactionRequest request, String owner) {
+        return transactionTemplate.execute(status -> {
+            Batch batch = new Batch();
+            batch.setJobId(jobId);
+            batch.setBatchId(request.getBatchId());
+            batch.setOwner(owner);
+            batch.setStatus(RUNNING);
+            batch.setTotal(request.getTransactions().size());
+            batch.setCreatedAt(Instant.now());
+            batch.setInstanceId(properties.getInstanceId());
+            batch.setLeaseExpiresAt(batch.getCreatedAt().plus(properties.getLease()));
+            entityManager.persist(batch);
+            heldBatches.add(batch.getId());
+
+            List<TransactionServiceRequest> transactions = request.getTransactions();
+            for (int position = 0; position < transactions.size(); position++) {
+                TransactionServiceRequest transaction = transactions.get(position);
+                BatchTransaction entity = new BatchTransaction();
+                entity.setBatchPk(batch.getId());
+                entity.setPosition(position);
+                entity.setTransactionId(transaction.getTransactionId());
+                entity.setFromAccount(transaction.getFromAccount());
+                entity.setToAccount(transaction.getToAccount());
+                entity.setAmount(storableAmount(transaction));
+                entityManager.persist(entity);
+                flushEvery(position + 1);
+            }
+            return batch.getId();
+        });
+    }
+
+    public void recordOutcome(long batchPk, int position, TransactionServiceResult result) {
+        enqueue(new OutcomeWrite(batchPk, position, result, Instant.now()));
+    }
+
+    public void finishBatch(long batchPk, String status) {
+        enqueue(new BatchFinish(batchPk, status, Instant.now()));
+    }
+
+    /**
+     * Claims the unfinished batches this instance does not run yet: its own from a previous run and
+     * those whose lease has expired.
+     */
+    List<ResumableBatch> findResumableBatches() {
+        Instant now = Instant.now();
+        return batchRepository.findClaimable(RUNNING, properties.getInstanceId(), now).stream()
+                .filter(batch -> !heldBatches.contains(batch.getId()) && claim(batch.getId(), now))
+                .map(batch -> {
+                    TransactionServiceResult[] stored = new TransactionServiceResult[batch.getTotal()];
+                    for (TransactionOutcome outcome : transactionOutcomeRepository.findByBatchPkOrderByPosition(batch.getId())) {
+                        stored[outcome.getPosition()] = new TransactionServiceResult(outcome.getTransactionId(),
+                                outcome.getStatus(), outcome.getReason());
+                    }
+                    List<TransactionServiceRequest> remaining = batchTransactionRepository.findByBatchPkOrderByPosition(batch.getId())
+                            .stream()
+                            .filter(entity -> stored[entity.getPosition()] == null)
+                            .map(entity -> new TransactionServiceRequest(entity.getTransactionId(), entity.getFromAccount(),
+                                    entity.getToAccount(), new BigDecimal(entity.getAmount())))
+                            .toList();
+                    return new ResumableBatch(batch.getId(), batch.getJobId(), batch.getBatchId(), batch.getOwner(),
+                            batch.getTotal(), Arrays.asList(stored), remaining);
+                })
+                .toList();
+    }
+
+    private boolean claim(long batchPk, Instant now) {
+        Integer claimed = transactionTemplate.execute(status ->
+                batchRepository.claim(batchPk, RUNNING, properties.getInstanceId(), now, now.plus(properties.getLease())));
+        return claimed != null && claimed == 1 && heldBatches.add(batchPk);
+    }
+
+    private void renewLeases() {
+        if (heldBatches.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> batchRepository.renewLeases(List.copyOf(heldBatches),
+                    properties.getInstanceId(), Instant.now().plus(properties.getLease())));
+        } catch (RuntimeException e) {
+            log.warn("Could not renew the leases of {} running batches: {}", heldBatches.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * The amount exactly as submitted, scale included, so a resumed transaction sends what was posted.
+     */
+    private static String storableAmount(TransactionServiceRequest transaction) {
+        String amount = transaction.getAmount().toString();
+        if (amount.length() > BatchTransaction.AMOUNT_LENGTH) {
+            throw new BadRequestException("Amount of transaction " + transaction.getTransactionId() + " is too long to store");
+        }
+        return amount;
+    }
+
+    /**
+     * Reasons come from the transaction service and have no bound, so the stored one is cut to its column.
+     */
+    private static String storableReason(String reason) {
+        return reason == null || reason.length() <= TransactionOutcome.REASON_LENGTH
+                ? reason
+                : reason.substring(0, TransactionOutcome.REASON_LENGTH);
+    }
+
+    private void enqueue(PendingWrite write) {
+        queuedWrites.incrementAndGet();
+        pendingWrites.emitNext(write, Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+    }
+
+    /**
+     * Writes a chunk in one transaction, retrying it with backoff. A chunk that still cannot be written is
+     * split by batch, and the batches whose writes fail on their own are failed: they are marked FAILED and
+     * their later writes are dropped, so a batch is never reported complete with outcomes missing.
+     */
+    private void write(List<PendingWrite> chunk) {
+        queuedWrites.addAndGet(-chunk.size());
+        List<PendingWrite> writes = chunk.stream().filter(write -> !failedBatches.contains(batchPk(write))).toList();
+        for (int attempt = 1; !writes.isEmpty(); attempt++) {
+            try {
+                persist(writes);
+                break;
+            } catch (RuntimeException e) {
+                if (attempt >= properties.getWriteAttempts()) {
+                    log.error("Could not persist {} pending batch writes after {} attempts: {}", writes.size(), attempt, e.getMessage());
+                    writeEachBatch(writes);
+                    break;
+                }
+                log.warn("Could not persist {} pending batch writes, retrying: {}", writes.size(), e.getMessage());
+                if (!backOff(attempt)) {
+                    failBatches(writes);
+                    break;
+                }
+            }
+        }
+        chunk.stream()
+                .filter(write -> write instanceof BatchFinish)
+                .forEach(write -> {
+                    failedBatches.remove(batchPk(write));
+                    heldBatches.remove(batchPk(write));
+                });
+    }
+
+    private void writeEachBatch(List<PendingWrite> writes) {
+        Map<Long, List<PendingWrite>> byBatch = writes.stream()
+                .collect(Collectors.groupingBy(BatchPersistenceService::batchPk, LinkedHashMap::new, Collectors.toList()));
+        if (byBatch.size() == 1) {
+            failBatches(writes);
+            return;
+        }
+        byBatch.forEach((batchPk, batchWrites) -> {
+            try {
+                persist(batchWrites);
+            } catch (RuntimeException e) {
+                log.error("Could not persist {} pending writes of batch {}: {}", batchWrites.size(), batchPk, e.getMessage());
+                failBatches(batchWrites);
+            }
+        });
+    }
+
+    private void persist(List<PendingWrite> writes) {
+        transactionTemplate.executeWithoutResult(status -> {
+            int outcomes = 0;
+            for (PendingWrite write : writes) {
+                if (write instanceof OutcomeWrite outcome) {
+                    TransactionOutcome entity = new TransactionOutcome();
+                    entity.setBatchPk(outcome.batchPk());
+                    entity.setPosition(outcome.position());
+                    entity.setTransactionId(outcome.result().getTransactionId());
+                    entity.setStatus(outcome.result().getStatus());
+                    entity.setReason(storableReason(outcome.result().getReason()));
+                    entity.setCompletedAt(outcome.completedAt());
+                    entityManager.persist(entity);
+                    flushEvery(++outcomes);
+                } else if (write instanceof BatchFinish finish) {
+                    entityManager.flush();
+                    batchRepository.markFinished(finish.batchPk(), finish.status(), finish.finishedAt());
+                }
+            }
+        });
+    }
+
+    private boolean backOff(int attempt) {
+        try {
+            Thread.sleep(properties.getWriteRetryBackoff().multipliedBy(1L << (attempt - 1)));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Best effort: a batch that cannot be marked either stays RUNNING, and once its job has ended and its
+     * lease run out, it is resumed from the outcomes that did get stored.
+     */
+    private void failBatches(List<PendingWrite> writes) {
+        writes.stream().map(BatchPersistenceService::batchPk).distinct().forEach(batchPk -> {
+            failedBatches.add(batchPk);
+            try {
+                transactionTemplate.executeWithoutResult(status -> batchRepository.markFinished(batchPk, FAILED, Instant.now()));
+            } catch (RuntimeException e) {
+                log.error("Could not mark batch {} failed: {}", batchPk, e.getMessage());
+            }
+        });
+    }
+
+    private static long batchPk(PendingWrite write) {
+        return switch (write) {
+            case OutcomeWrite outcome -> outcome.batchPk();
+            case BatchFinish finish -> finish.batchPk();
+        };
+    }
+
+    private void flushEvery(int count) {
+        if (count % properties.getFlushSize() == 0) {
+            entityManager.flush();
+            entityManager.clear();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws Exception {
+        pendingWrites.tryEmitComplete();
+        try {
+            drained.get(10, TimeUnit.SECONDS);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.bulk_transactions.service;
+
+import com.example.bulk_transactions.config.BulkProcessingProperties;
+import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Checks each transaction of one batch, as it is fanned out, for what the transaction service would
+ * only decline after a round trip: a transactionId already seen earlier in the batch, a transfer to the
+ * source account itself, and an amount the service cannot store. A rejected transaction fails locally
+ * and no downstream call is spent on it.
+ *
+ * <p>Transaction ids are remembered as 64-bit fingerprints in an open-addressing table of longs, with
+ * each id's chars appended to one shared char array, so the id strings of a streamed batch are not kept
+ * alive. A matching fingerprint is confirmed against those chars, so two different ids that happen to
+ * share a fingerprint are both accepted.
+ *
+ * <p>A resumed batch only sends the transactions at the positions with no stored outcome. Its preflight
+ * is given the stored outcomes, and the ids stored before each such position count as seen by the time
+ * the transaction filling it is checked, just as in the original run.
+ *
+ * <p>Not thread-safe: transactions are checked from the fan-out's onNext, which Reactor serialises.
+ */
+class BatchPreflight {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final BulkProcessingProperties.Preflight properties;
+    private final Metrics metrics;
+    private final ToLongFunction<String> fingerprint;
+    private long[] fingerprints = new long[INITIAL_CAPACITY];
+    private int[] offsets = new int[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private char[] ids = new char[INITIAL_CAPACITY * 8];
+    private int idsLength;
+    private int size;
+    private List<TransactionServiceResult> stored = List.of();
+    private int storedCursor;
+
+    BatchPreflight(BulkProcessingProperties.Preflight properties, Metrics metrics) {
+        this(properties, metrics, BatchPreflight::fingerprint);
+    }
+
+    BatchPreflight(BulkProcessingProperties.Preflight properties, Metrics metrics, ToLongFunction<String> fingerprint) {
+        this.properties = properties;
+        this.metrics = metrics;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Resumes the checks of a batch from {@code stored}, which has one slot per position of the batch,
+     * holding the outcome stored there or null; the transactions checked next fill the null slots in order.
+     */
+    void resumeFrom(List<TransactionServiceResult> stored) {
+        this.stored = stored;
+    }
+
+    /**
+     * Why {@code transaction} should not be sent, or null when it is viable. Every transaction is
+     * registered as seen, so only the second and later occurrences of an id are rejected.
+     */
+    String check(TransactionServiceRequest transaction) {
+        skipStored();
+        if (transaction.getTransactionId() != null && !add(transaction.getTransactionId())) {
+            metrics.duplicates.increment();
+            return "Duplicate transactionId in batch";
+        }
+        if (transaction.getFromAccount() != null && transaction.getFromAccount().equals(transaction.getToAccount())) {
+            metrics.sameAccount.increment();
+            return "Source and destination accounts must differ";
+        }
+        BigDecimal amount = transaction.getAmount();
+        if (amount != null && properties.getMaxScale() != null) {
+            int maxScale = properties.getMaxScale();
+            int maxIntegerDigits = properties.getMaxPrecision() - maxScale;
+            // a scale past the limit is fine as long as the extra digits are trailing zeros, e.g. 10.500
+            if (amount.scale() > maxScale && amount.stripTrailingZeros().scale() > maxScale) {
+                metrics.scale.increment();
+                return "Amount has more than " + maxScale + " decimal places";
+            }
+            if (amount.precision() - amount.scale() > maxIntegerDigits) {
+                metrics.overflow.increment();
+                return "Amount exceeds " + maxIntegerDigits + " integer digits";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Registers the ids of the outcomes stored up to the next gap, and moves past the gap, which the
+     * transaction being checked fills.
+     */
+    private void skipStored() {
+        while (storedCursor < stored.size() && stored.get(storedCursor) != null) {
+            String id = stored.get(storedCursor++).getTransactionId();
+            if (id != null) {
+                add(id);
+            }
+        }
+        storedCursor++;
+    }
+
+    /**
+     * Adds {@code id} unless present, by linear probing; false when it was already there. Slots with the
+     * same fingerprint but another id are probed past.
+     */
+    private boolean add(String id) {
+        long hash = fingerprint.applyAsLong(id);
+        int mask = fingerprints.length - 1;
+        int index = (int) hash & mask;
+        while (fingerprints[index] != 0) {
+            if (fingerprints[index] == hash && sameId(index, id)) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        fingerprints[index] = hash;
+        offsets[index] = append(id);
+        lengths[index] = id.length();
+        if (++size * 2 > fingerprints.length) {
+            grow();
+        }
+        return true;
+    }
+
+    private boolean sameId(int index, String id) {
+        if (lengths[index] != id.length()) {
+            return false;
+        }
+        int offset = offsets[index];
+        for (int i = 0; i < id.length(); i++) {
+            if (ids[offset + i] != id.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int append(String id) {
+        if (ids.length - idsLength < id.length()) {
+            ids = Arrays.copyOf(ids, Math.max(ids.length * 2, idsLength + id.length()));
+        }
+        id.getChars(0, id.length(), ids, idsLength);
+        int offset = idsLength;
+        idsLength += id.length();
+        return offset;
+    }
+
+    private void grow() {
+        long[] oldFingerprints = fingerprints;
+        int[] oldOffsets = offsets;
+        int[] oldLengths = lengths;
+        fingerprints = new long[oldFingerprints.length * 2];
+        offsets = new int[fingerprints.length];
+        lengths = new int[fingerprints.length];
+        int mask = fingerprints.length - 1;
+        for (int old = 0; old < oldFingerprints.length; old++) {
+            if (oldFingerprints[old] != 0) {
+                int index = (int) oldFingerprints[old] & mask;
+                while (fingerprints[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                fingerprints[index] = oldFingerprints[old];
+                offsets[index] = oldOffsets[old];
+                lengths[index] = oldLengths[old];
+            }
+        }
+    }
+
+    /**
+     * FNV-1a over the id's chars, finished with the MurmurHash3 mixer so every bit of the result
+     * depends on every char. Zero marks an empty slot, so it is never returned.
+     */
+    static long fingerprint(String id) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash = (hash ^ id.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash != 0 ? hash : 1;
+    }
+
+    /**
+     * Rejection counters shared by the pre-flight checks of every batch.
+     */
+    static final class Metrics {
+
+        private final Counter duplicates;
+        private final Counter sameAccount;
+        private final Counter scale;
+        private final Counter overflow;
+
+        Metrics(MeterRegistry meterRegistry) {
+            this.duplicates = rejections("duplicate", meterRegistry);
+            this.sameAccount = rejections("same_account", meterRegistry);
+            this.scale = rejections("scale", meterRegistry);
+            this.overflow = rejections("overflow", meterRegistry);
+        }
+
+        private static Counter rejections(String reason, MeterRegistry meterRegistry) {
+            return Counter.builder("transactions.preflight.rejected")
+                    .description("Transactions failed locally by the pre-flight checks, without a downstream call")
+                    .tag("reason", reason)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.bulk_transactions.service;
+
+import com.example.bulk_transactions.dto.CompactTransactionResults;
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import lombok.Getter;
+import reactor.core.Disposable;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory state of one asynchronous bulk job. Results are appended in submission order by the
+ * single processing subscriber into a columnar {@link CompactTransactionResults}; readers only look at
+ * the prefix published through {@code completed}.
+ */
+@Getter
+class BulkJob {
+
+    enum State { RUNNING, COMPLETED, FAILED, CANCELLED }
+
+    private final String jobId;
+    private final String batchId;
+    private final String owner;
+    private final int total;
+    private final Instant submittedAt = Instant.now();
+    private final CompactTransactionResults results;
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private volatile State state = State.RUNNING;
+    private volatile Instant finishedAt;
+    private volatile Disposable subscription;
+
+    BulkJob(String jobId, String batchId, String owner, int total) {
+        this.jobId = jobId;
+        this.batchId = batchId;
+        this.owner = owner;
+        this.total = total;
+        this.results = new CompactTransactionResults(total);
+    }
+
+    void attach(Disposable subscription) {
+        this.subscription = subscription;
+    }
+
+    /**
+     * Appends a result and returns its position in the batch.
+     */
+    int record(TransactionServiceResult result) {
+        int index = completed.get();
+        results.add(result);
+        if (BatchStats.SUCCESS.equals(result.getStatus())) {
+            succeeded.incrementAndGet();
+        } else if (BatchStats.SKIPPED.equals(result.getStatus())) {
+            skipped.incrementAndGet();
+        } else {
+            failed.incrementAndGet();
+        }
+        completed.set(index + 1);
+        return index;
+    }
+
+    void finish(State finalState) {
+        this.finishedAt = Instant.now();
+        this.state = finalState;
+    }
+
+    void cancel() {
+        Disposable current = subscription;
+        if (state == State.RUNNING && current != null) {
+            current.dispose();
+            finish(State.CANCELLED);
+        }
+    }
+
+    boolean isRunning() {
+        return state == State.RUNNING;
+    }
+
+    List<TransactionServiceResult> results(int from, int to) {
+        int available = completed.get();
+        if (from >= available) {
+            return List.of();
+        }
+        return IntStream.range(from, Math.min(to, available)).mapToObj(results::get).toList();
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.bulk_transactions.service;
+
+import com.example.bulk_transactions.config.BulkProcessingProperties;
+import com.example.bulk_transactions.dto.BulkJobResultsPage;
+import com.example.bulk_transactions.dto.BulkJobStatusResponse;
+import com.example.bulk_transactions.dto.BulkTransactionRequest;
+import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import com.example.bulk_transactions.exception.BadRequestException;
+import com.example.bulk_transactions.exception.ResourceNotFoundException;
+import com.example.bulk_transactions.exception.TooManyRequestsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs bulk requests in the background and keeps their progress and results in a bounded cache.
+ * Finished jobs are weighed by the number of results they hold and evicted by size or retention;
+ * running jobs weigh nothing and never expire, so they are never evicted, and their number is capped instead.
+ */
+@Service
+@Slf4j
+public class BulkJobService {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final Duration UNBOUNDED = Duration.ofNanos(Long.MAX_VALUE);
+
+    private final BulkTransactionService bulkTransactionService;
+    private final BatchPersistenceService batchPersistenceService;
+    private final BulkProcessingProperties.Jobs properties;
+    private final Duration lease;
+    private final Cache<String, BulkJob> jobs;
+    private final AtomicInteger activeJobs = new AtomicInteger();
+    private volatile Disposable resumer = Disposables.disposed();
+
+    public BulkJobService(BulkTransactionService bulkTransactionService, BatchPersistenceService batchPersistenceService,
+                          BulkProcessingProperties properties, MeterRegistry meterRegistry) {
+        this.bulkTransactionService = bulkTransactionService;
+        this.batchPersistenceService = batchPersistenceService;
+        this.properties = properties.getJobs();
+        this.lease = properties.getPersistence().getLease();
+        this.jobs = Caffeine.newBuilder()
+                .maximumWeight(this.properties.getMaxRetainedResults())
+                .weigher((String jobId, BulkJob job) -> job.isRunning() ? 0 : Math.max(1, job.getTotal()))
+                .expireAfter(Expiry.writing((String jobId, BulkJob job) -> job.isRunning() ? UNBOUNDED : this.properties.getRetention()))
+                .removalListener((String jobId, BulkJob job, RemovalCause cause) -> {
+                    if (job != null && cause.wasEvicted()) {
+                        job.cancel();
+                    }
+                })
+                .build();
+        Gauge.builder("bulk.jobs.active", activeJobs, AtomicInteger::get)
+                .description("Asynchronous jobs currently running")
+                .register(meterRegistry);
+    }
+
+    public BulkJobStatusResponse submit(BulkTransactionRequest request, String owner) {
+        if (activeJobs.incrementAndGet() > properties.getMaxActiveJobs()) {
+            activeJobs.decrementAndGet();
+            throw new TooManyRequestsException("Too many bulk jobs in progress, retry later");
+        }
+
+        BulkJob job = new BulkJob(UUID.randomUUID().toString(), request.getBatchId(), owner, request.getTransactions().size());
+        Long batchPk = null;
+        if (batchPersistenceService.isEnabled()) {
+            try {
+                batchPk = batchPersistenceService.createBatch(job.getJobId(), request, owner);
+            } catch (RuntimeException e) {
+                activeJobs.decrementAndGet();
+                throw e;
+            }
+        }
+        start(job, batchPk, List.of(), request.getTransactions());
+
+        log.info("Bulk job {} accepted for batchId {} with {} transactions", job.getJobId(), job.getBatchId(), job.getTotal());
+        return toStatus(job);
+    }
+
+    /**
+     * Resumes unfinished jobs on startup, then looks again once per lease for jobs whose instance went away.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startResuming() {
+        if (!batchPersistenceService.isEnabled()) {
+            return;
+        }
+        resumer = Flux.interval(Duration.ZERO, lease, Schedulers.boundedElastic())
+                .onBackpressureDrop()
+                .subscribe(tick -> {
+                    try {
+                        resumeUnfinishedJobs();
+                    } catch (RuntimeException e) {
+                        log.warn("Could not look for unfinished bulk jobs to resume: {}", e.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * Picks up jobs left unfinished by a previous run or another instance, restoring the outcomes already
+     * stored and processing only the transactions at the positions that have none.
+     */
+    void resumeUnfinishedJobs() {
+        for (BatchPersistenceService.ResumableBatch resumable : batchPersistenceService.findResumableBatches()) {
+            BulkJob job = new BulkJob(resumable.jobId(), resumable.batchId(), resumable.owner(), resumable.total());
+            activeJobs.incrementAndGet();
+            start(job, resumable.batchPk(), resumable.stored(), resumable.remaining());
+            log.info("Resumed bulk job {} for batchId {} with {} of {} transactions remaining",
+                    job.getJobId(), job.getBatchId(), resumable.remaining().size(), job.getTotal());
+        }
+    }
+
+    /**
+     * Processes {@code transactions}, which fill the null slots of {@code stored} in order; the outcomes
+     * already stored are recorded around them, so the job's results stay in batch order.
+     */
+    private void start(BulkJob job, Long batchPk, List<TransactionServiceResult> stored, List<TransactionServiceRequest> transactions) {
+        jobs.put(job.getJobId(), job);
+        restore(job, stored);
+        job.attach(bulkTransactionService.processTransactions(job.getBatchId(), stored, Flux.fromIterable(transactions))
+                .doFinally(signal -> activeJobs.decrementAndGet())
+                // resumed jobs run without a request, so the owner is named explicitly
+                .contextWrite(TenantScheduler.withTenant(job.getOwner()))
+                .subscribe(result -> {
+                            int position = job.record(result);
+                            if (batchPk != null) {
+                                batchPersistenceService.recordOutcome(batchPk, position, result);
+                            }
+                            restore(job, stored);
+                        },
+                        error -> {
+                            log.error("Bulk job {} for batchId {} failed: {}", job.getJobId(), job.getBatchId(), error.getMessage());
+                            finish(job, batchPk, BulkJob.State.FAILED);
+                        },
+                        () -> finish(job, batchPk, BulkJob.State.COMPLETED)));
+    }
+
+    private static void restore(BulkJob job, List<TransactionServiceResult> stored) {
+        for (int position = job.getCompleted().get(); position < stored.size() && stored.get(position) != null; position++) {
+            job.record(stored.get(position));
+        }
+    }
+
+    public BulkJobStatusResponse getStatus(String jobId, String owner) {
+        return toStatus(findJob(jobId, owner));
+    }
+
+    public BulkJobResultsPage getResults(String jobId, String owner, int page, int size) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE);
+        }
+        BulkJob job = findJob(jobId, owner);
+        int from = Math.multiplyExact(page, size);
+        int available = job.getCompleted().get();
+        boolean last = !job.isRunning() && from + size >= available;
+        return new BulkJobResultsPage(jobId, page, size, available, last, job.results(from, from + size));
+    }
+
+    private void finish(BulkJob job, Long batchPk, BulkJob.State state) {
+        job.finish(state);
+        if (batchPk != null) {
+            batchPersistenceService.finishBatch(batchPk, state.name());
+        }
+        // re-insert so the job is re-weighed now that it holds results and its retention starts
+        jobs.asMap().replace(job.getJobId(), job);
+    }
+
+    private BulkJob findJob(String jobId, String owner) {
+        BulkJob job = jobs.getIfPresent(jobId);
+        if (job == null || !job.getOwner().equals(owner)) {
+            throw new ResourceNotFoundException("Bulk job not found: " + jobId);
+        }
+        return job;
+    }
+
+    private BulkJobStatusResponse toStatus(BulkJob job) {
+        return new BulkJobStatusResponse(job.getJobId(), job.getBatchId(), job.getState().name(), job.getTotal(),
+                job.getCompleted().get(), job.getSucceeded().get(), job.getFailed().get(), job.getSkipped().get(),
+                job.getSubmittedAt(), job.getFinishedAt());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        resumer.dispose();
+        jobs.asMap().values().forEach(BulkJob::cancel);
+    }
+}
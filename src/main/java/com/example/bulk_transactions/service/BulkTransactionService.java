@@ -1,55 +1,305 @@
 package com.example.bulk_transactions.service;
 
+import com.example.bulk_transactions.client.RetryBudget;
 import com.example.bulk_transactions.client.TransactionServiceClient;
+import com.example.bulk_transactions.config.BulkProcessingProperties;
 import com.example.bulk_transactions.dto.BulkTransactionRequest;
 import com.example.bulk_transactions.dto.BulkTransactionResponse;
+import com.example.bulk_transactions.dto.CompactTransactionResults;
 import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
 import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import com.example.bulk_transactions.exception.BadRequestException;
+import com.example.bulk_transactions.exception.IdempotencyConflictException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.context.Context;
 
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class BulkTransactionService {
     private final TransactionServiceClient transactionServiceClient;
-    private final MeterRegistry meterRegistry;
-    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+    private final BulkProcessingProperties properties;
+    private final Validator validator;
+    private final IdempotencyService idempotencyService;
+    private final TenantScheduler tenantScheduler;
+    private final Counter successCounter;
+    private final Counter failureCounter;
+    private final Counter skippedCounter;
+    private final Timer batchTimer;
+    private final DistributionSummary batchSize;
+    private final DistributionSummary retryAmplification;
+    private final AccountLanes.Metrics laneMetrics;
+    private final BatchPreflight.Metrics preflightMetrics;
+    private final VirtualThreadCallExecutor virtualThreadExecutor;
 
-    public BulkTransactionService(TransactionServiceClient transactionServiceClient, MeterRegistry meterRegistry) {
+    public BulkTransactionService(TransactionServiceClient transactionServiceClient, MeterRegistry meterRegistry,
+                                  BulkProcessingProperties properties, Validator validator, IdempotencyService idempotencyService,
+                                  TenantScheduler tenantScheduler) {
         this.transactionServiceClient = transactionServiceClient;
-        this.meterRegistry = meterRegistry;
+        this.properties = properties;
+        this.validator = validator;
+        this.idempotencyService = idempotencyService;
+        this.tenantScheduler = tenantScheduler;
+        this.successCounter = meterRegistry.counter("transactions.success.count");
+        this.failureCounter = meterRegistry.counter("transactions.failure.count");
+        this.skippedCounter = meterRegistry.counter("transactions.skipped.count");
+        this.batchTimer = Timer.builder("bulk.batch.duration")
+                .description("Time from the first transaction of a batch being sent to its last result")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("bulk.batch.size")
+                .description("Transactions processed per batch")
+                .baseUnit("transactions")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.retryAmplification = DistributionSummary.builder("bulk.batch.retry.amplification")
+                .description("Transaction service calls made per transaction sent, per batch")
+                .register(meterRegistry);
+        this.laneMetrics = new AccountLanes.Metrics(meterRegistry);
+        this.preflightMetrics = new BatchPreflight.Metrics(meterRegistry);
+        this.virtualThreadExecutor = properties.getExecutionMode() == BulkProcessingProperties.ExecutionMode.VIRTUAL_THREADS
+                ? new VirtualThreadCallExecutor(properties.getVirtualThreads().getMaxDownstreamInFlight(), meterRegistry)
+                : null;
     }
 
-    public BulkTransactionResponse processBulkTransactions(@Valid BulkTransactionRequest request) {
-        List<CompletableFuture<TransactionServiceResult>> futures = request.getTransactions()
-                .stream()
-                .map(transaction -> CompletableFuture.supplyAsync(() -> processSingleTransaction(request.getBatchId(), transaction), executor))
-                .toList();
+    /**
+     * Results are collected into a {@link CompactTransactionResults}, so a large batch holds its outcomes
+     * column by column until the response is written rather than as one object per transaction.
+     */
+    public Mono<BulkTransactionResponse> processBulkTransactions(@Valid BulkTransactionRequest request) {
+        return processTransactions(request.getBatchId(), Flux.fromIterable(request.getTransactions()))
+                .collect(() -> new CompactTransactionResults(request.getTransactions().size()), CompactTransactionResults::add)
+                .map(results -> new BulkTransactionResponse(request.getBatchId(), results));
+    }
+
+    /**
+     * Fans the transactions out to the transaction service with at most
+     * {@code bulk-processing.concurrency} calls in flight, emitting results in submission order.
+     * Downstream calls are scheduled on behalf of the authenticated caller.
+     */
+    public Flux<TransactionServiceResult> processTransactions(String batchId, Flux<TransactionServiceRequest> transactions) {
+        return processTransactions(batchId, List.of(), transactions);
+    }
+
+    /**
+     * Resumes a batch: {@code transactions} fill the null slots of {@code stored}, the outcomes already
+     * stored for the batch, in order, and are checked against them, so a transactionId stored at an
+     * earlier position is still caught as a duplicate.
+     */
+    public Flux<TransactionServiceResult> processTransactions(String batchId, List<TransactionServiceResult> stored,
+                                                              Flux<TransactionServiceRequest> transactions) {
+        return perBatch(batchId, stored, batch -> transactions.flatMapSequential(
+                transaction -> processSingleTransaction(batchId, transaction, batch), properties.getConcurrency()));
+    }
+
+    /**
+     * Same fan-out as {@link #processTransactions} but emits each result as soon as it completes,
+     * so nothing has to be held back waiting for slower transactions earlier in the batch.
+     */
+    public Flux<TransactionServiceResult> streamTransactions(String batchId, Flux<TransactionServiceRequest> transactions) {
+        return perBatch(batchId, List.of(), batch -> transactions.flatMap(
+                transaction -> processSingleTransaction(batchId, transaction, batch), properties.getConcurrency()));
+    }
+
+    /**
+     * Streaming variant for transactions parsed incrementally, which never went through request-level
+     * Bean Validation. Each item is validated on its own and invalid ones fail without a downstream call;
+     * a batch with no transactions at all fails with a {@link BadRequestException}, as it would on the
+     * validated endpoints.
+     */
+    public Flux<TransactionServiceResult> streamUnvalidatedTransactions(String batchId, Flux<TransactionServiceRequest> transactions) {
+        Flux<TransactionServiceRequest> nonEmpty = transactions
+                .switchIfEmpty(Flux.error(() -> new BadRequestException("At least one transaction is required")));
+        return perBatch(batchId, List.of(), batch -> nonEmpty.flatMap(transaction -> {
+            Set<ConstraintViolation<TransactionServiceRequest>> violations = validator.validate(transaction);
+            if (violations.isEmpty()) {
+                return processSingleTransaction(batchId, transaction, batch);
+            }
+            String reason = violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+            return batch.stats().timed(Mono.fromSupplier(() -> failed(batchId, transaction, "Validation failed: " + reason)));
+        }, properties.getConcurrency()));
+    }
+
+    /**
+     * What one batch carries through the pipeline besides its retry budget: the stats its transactions
+     * are recorded into and its failure policy is checked against, the lanes that order its transactions
+     * per account and the pre-flight checks run on each transaction. Lanes and pre-flight are null when disabled.
+     */
+    private record Batch(BatchStats stats, AccountLanes lanes, BatchPreflight preflight) {
+    }
+
+    /**
+     * Attaches a fresh {@link Batch} and retry budget to the batch's fan-out, scheduled on behalf of the
+     * caller. Once the batch is over its duration, size and retry amplification are recorded and a
+     * summary line is logged. Cancelling the returned flux, as happens when the client disconnects,
+     * cancels the transactions still queued or in flight.
+     */
+    private Flux<TransactionServiceResult> perBatch(String batchId, List<TransactionServiceResult> stored,
+                                                    Function<Batch, Flux<TransactionServiceResult>> fanOut) {
+        BulkProcessingProperties.RetryBudget retryBudget = properties.getRetryBudget();
+        return Flux.defer(() -> {
+                    RetryBudget budget = retryBudget.isEnabled()
+                            ? new RetryBudget(retryBudget.getRatio(), retryBudget.getMinRetries())
+                            : null;
+                    BatchStats stats = new BatchStats(properties.getFailurePolicy());
+                    AccountLanes lanes = properties.getOrdering().isEnabled()
+                            ? new AccountLanes(properties.getOrdering().getLanes(), laneMetrics)
+                            : null;
+                    BatchPreflight preflight = properties.getPreflight().isEnabled()
+                            ? new BatchPreflight(properties.getPreflight(), preflightMetrics)
+                            : null;
+                    if (preflight != null) {
+                        preflight.resumeFrom(stored);
+                    }
+                    Timer.Sample sample = Timer.start();
+                    Flux<TransactionServiceResult> batch = fanOut.apply(new Batch(stats, lanes, preflight))
+                            .doFinally(signal -> {
+                                sample.stop(batchTimer);
+                                batchSize.record(stats.getTotal());
+                                if (budget != null) {
+                                    retryAmplification.record(budget.amplification());
+                                }
+                                logSummary(batchId, signal, stats, budget);
+                            });
+                    return budget != null ? batch.contextWrite(Context.of(RetryBudget.CONTEXT_KEY, budget)) : batch;
+                })
+                .contextWrite(tenantScheduler.callerContext());
+    }
+
+    private void logSummary(String batchId, SignalType signal, BatchStats stats, RetryBudget budget) {
+        if (!properties.getLogging().isBatchSummary()) {
+            return;
+        }
+        log.atInfo()
+                .setMessage("Batch processed")
+                .addKeyValue("batchId", batchId)
+                .addKeyValue("signal", signal)
+                .addKeyValue("transactions", stats.getTotal())
+                .addKeyValue("succeeded", stats.getSucceeded())
+                .addKeyValue("failed", stats.getFailed())
+                .addKeyValue("skipped", stats.getSkipped())
+                .addKeyValue("abortReason", stats.getAbortReason())
+                .addKeyValue("durationMs", stats.elapsedMillis())
+                .addKeyValue("p50Ms", stats.latencyPercentileMillis(0.50))
+                .addKeyValue("p95Ms", stats.latencyPercentileMillis(0.95))
+                .addKeyValue("p99Ms", stats.latencyPercentileMillis(0.99))
+                .addKeyValue("retryAmplification", budget != null ? budget.amplification() : null)
+                .log();
+    }
+
+    /**
+     * Per-transaction lines are only written for a sampled share of transactions; the batch summary
+     * carries the totals.
+     */
+    private boolean sampled() {
+        double rate = properties.getLogging().getItemSampleRate();
+        return rate >= 1.0 || rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    /**
+     * Runs the pre-flight checks as the transaction is fanned out, so a duplicate id is always the later
+     * occurrence in submission order, and only a viable transaction goes on to its lane and the service.
+     * The rejection is only reported after the abort check, so once a batch is aborted every transaction
+     * not yet processed is SKIPPED, whether it would have been rejected or sent.
+     */
+    private Mono<TransactionServiceResult> processSingleTransaction(String batchId, TransactionServiceRequest transaction, Batch batch) {
+        BatchStats stats = batch.stats();
+        String rejection = batch.preflight() != null ? batch.preflight().check(transaction) : null;
+        Mono<TransactionServiceResult> processed = Mono.defer(() -> {
+            if (stats.isAborted()) {
+                return Mono.just(skipped(transaction, stats));
+            }
+            if (rejection != null) {
+                return Mono.fromSupplier(() -> failed(batchId, transaction, rejection));
+            }
+            return idempotencyService.deduplicate(batchId, transaction, key -> sendTransaction(batchId, transaction, key, stats))
+                    .onErrorResume(IdempotencyConflictException.class,
+                            e -> Mono.fromSupplier(() -> failed(batchId, transaction, e.getMessage())));
+        });
+        AccountLanes lanes = batch.lanes();
+        return stats.timed(lanes != null && rejection == null ? lanes.submit(transaction.getFromAccount(), processed) : processed);
+    }
 
-        List<TransactionServiceResult> results = futures.stream()
-                .map(CompletableFuture::join)
-                .toList();
+    /**
+     * The abort check is repeated when the scheduler grants the slot, so transactions that were
+     * queued behind a full downstream when the batch was aborted are skipped instead of sent.
+     */
+    private Mono<TransactionServiceResult> sendTransaction(String batchId, TransactionServiceRequest transaction,
+                                                          String idempotencyKey, BatchStats stats) {
+        Mono<Boolean> sent = Mono.defer(() -> stats.isAborted()
+                ? Mono.just(false)
+                : callTransactionService(transaction, idempotencyKey).thenReturn(true));
+        return tenantScheduler.schedule(batchId, sent)
+                .map(wasSent -> wasSent ? succeeded(batchId, transaction) : skipped(transaction, stats))
+                .onErrorResume(e -> Mono.fromSupplier(() -> failed(batchId, transaction, e.getMessage())));
+    }
 
-        return new BulkTransactionResponse(request.getBatchId(), results);
+    private TransactionServiceResult succeeded(String batchId, TransactionServiceRequest transaction) {
+        successCounter.increment();
+        if (sampled()) {
+            log.atInfo()
+                    .setMessage("Transaction succeeded")
+                    .addKeyValue("batchId", batchId)
+                    .addKeyValue("transactionId", transaction.getTransactionId())
+                    .log();
+        }
+        return new TransactionServiceResult(transaction.getTransactionId(), BatchStats.SUCCESS, null);
+    }
+
+    private TransactionServiceResult skipped(TransactionServiceRequest transaction, BatchStats stats) {
+        skippedCounter.increment();
+        return new TransactionServiceResult(transaction.getTransactionId(), BatchStats.SKIPPED, stats.getAbortReason());
+    }
+
+    private TransactionServiceResult failed(String batchId, TransactionServiceRequest transaction, String reason) {
+        failureCounter.increment();
+        if (sampled()) {
+            log.atError()
+                    .setMessage("Transaction failed")
+                    .addKeyValue("batchId", batchId)
+                    .addKeyValue("transactionId", transaction.getTransactionId())
+                    .addKeyValue("reason", reason)
+                    .log();
+        }
+        return new TransactionServiceResult(transaction.getTransactionId(), "FAILED", reason);
+    }
+
+    /**
+     * The virtual-thread call blocks outside the pipeline, so the batch's context, and with it the retry
+     * budget, is carried over to it explicitly.
+     */
+    private Mono<Void> callTransactionService(TransactionServiceRequest transaction, String idempotencyKey) {
+        if (virtualThreadExecutor != null) {
+            return Mono.deferContextual(context -> virtualThreadExecutor.run(
+                    () -> transactionServiceClient.processTransaction(transaction, idempotencyKey).contextWrite(context).block()));
+        }
+        return Mono.defer(() -> transactionServiceClient.processTransaction(transaction, idempotencyKey));
     }
 
-    private TransactionServiceResult processSingleTransaction(String batchId, TransactionServiceRequest transaction) {
-        try {
-            transactionServiceClient.processTransaction(transaction);
-            log.info("Transaction succeeded for batchId {} transactionId {}", batchId, transaction.getTransactionId());
-            meterRegistry.counter("transactions.success.count").increment();
-            return new TransactionServiceResult(transaction.getTransactionId(), "SUCCESS", null);
-        } catch (Exception e) {
-            log.error("Transaction failed for batchId {} transactionId {}: {}", batchId, transaction.getTransactionId(), e.getMessage());
-            meterRegistry.counter("transactions.failure.count").increment();
-            return new TransactionServiceResult(transaction.getTransactionId(), "FAILED", e.getMessage());
+    @PreDestroy
+    void shutdown() {
+        if (virtualThreadExecutor != null) {
+            virtualThreadExecutor.close();
         }
     }
 }
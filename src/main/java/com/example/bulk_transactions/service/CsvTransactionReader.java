@@ -0,0 +1,349 @@
+package com.example.bulk_transactions.service;
+
+import com.example.bulk_transactions.config.BulkProcessingProperties;
+import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
+import com.example.bulk_transactions.exception.BadRequestException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parses CSV payment files into transactions as they are read. The first row is a header naming the
+ * {@code transactionId}, {@code fromAccount}, {@code toAccount} and {@code amount} columns in any order;
+ * other columns are skipped. Fields are RFC 4180: optionally quoted, with {@code ""} escaping a quote.
+ *
+ * <p>Rows are scanned straight from a byte buffer, so the only objects created per row are the three
+ * strings and the amount of the resulting transaction. Rows are parsed in chunks on a bounded-elastic
+ * thread, at most two chunks ahead of what the processing pipeline has asked for.
+ */
+@Component
+public class CsvTransactionReader {
+
+    private static final String[] COLUMNS = {"transactionId", "fromAccount", "toAccount", "amount"};
+
+    private final BulkProcessingProperties.CsvImport properties;
+
+    public CsvTransactionReader(BulkProcessingProperties properties) {
+        this.properties = properties.getCsvImport();
+    }
+
+    /**
+     * Reads the header right away, so a file without the expected columns is rejected before any
+     * transaction is processed, and returns the rows still to be parsed.
+     */
+    public Flux<TransactionServiceRequest> read(InputStream body) throws IOException {
+        Parser parser = new Parser(body, (byte) properties.getDelimiter());
+        try {
+            parser.readHeader();
+        } catch (IOException | RuntimeException e) {
+            parser.close();
+            throw e;
+        }
+        int chunkSize = properties.getChunkSize();
+        return Flux.<List<TransactionServiceRequest>>generate(sink -> {
+                    try {
+                        List<TransactionServiceRequest> chunk = new ArrayList<>(chunkSize);
+                        TransactionServiceRequest transaction;
+                        while (chunk.size() < chunkSize && (transaction = parser.next()) != null) {
+                            chunk.add(transaction);
+                        }
+                        if (chunk.isEmpty()) {
+                            sink.complete();
+                        } else {
+                            sink.next(chunk);
+                        }
+                    } catch (IOException e) {
+                        sink.error(new BadRequestException("Unreadable CSV body: " + e.getMessage()));
+                    }
+                })
+                .doFinally(signal -> parser.close())
+                .subscribeOn(Schedulers.boundedElastic())
+                .concatMapIterable(chunk -> chunk, 1);
+    }
+
+    /**
+     * Byte-level CSV scanner. An unquoted field that lies within the read buffer is decoded in place;
+     * quoted fields, and fields split across two reads, are first copied to a scratch buffer.
+     */
+    static final class Parser {
+
+        private static final int DELIMITER = 0;
+        private static final int END_OF_LINE = 1;
+        private static final int END_OF_INPUT = 2;
+
+        private final InputStream in;
+        private final byte delimiter;
+        private final byte[] buffer = new byte[64 * 1024];
+        private final int[] columns = new int[COLUMNS.length];
+        private int position;
+        private int limit;
+        private boolean skipLineFeed;
+        private long line = 1;
+
+        private byte[] scratch = new byte[256];
+        private int scratchLength;
+
+        private byte[] field;
+        private int fieldOffset;
+        private int fieldLength;
+
+        Parser(InputStream in, byte delimiter) {
+            this.in = in;
+            this.delimiter = delimiter;
+        }
+
+        void readHeader() throws IOException {
+            Arrays.fill(columns, -1);
+            if (ensure() && limit - position >= 3
+                    && buffer[0] == (byte) 0xEF && buffer[1] == (byte) 0xBB && buffer[2] == (byte) 0xBF) {
+                position += 3;
+            }
+            int column = 0;
+            int terminator;
+            do {
+                terminator = readField();
+                String name = string().trim();
+                for (int i = 0; i < COLUMNS.length; i++) {
+                    if (COLUMNS[i].equalsIgnoreCase(name)) {
+                        columns[i] = column;
+                    }
+                }
+                column++;
+            } while (terminator == DELIMITER);
+            if (Arrays.stream(columns).anyMatch(index -> index < 0)) {
+                throw new BadRequestException("CSV header must name the columns " + String.join(", ", COLUMNS));
+            }
+        }
+
+        /**
+         * Next transaction, or null at the end of the file. Blank lines are skipped; missing fields are
+         * left null for validation to report.
+         */
+        TransactionServiceRequest next() throws IOException {
+            while (true) {
+                long rowLine = line;
+                String transactionId = null;
+                String fromAccount = null;
+                String toAccount = null;
+                BigDecimal amount = null;
+                int column = 0;
+                int terminator;
+                do {
+                    terminator = readField();
+                    if (column == 0 && terminator != DELIMITER && fieldLength == 0) {
+                        break;
+                    }
+                    if (column == columns[0]) {
+                        transactionId = string();
+                    } else if (column == columns[1]) {
+                        fromAccount = string();
+                    } else if (column == columns[2]) {
+                        toAccount = string();
+                    } else if (column == columns[3]) {
+                        amount = amount(rowLine);
+                    }
+                    column++;
+                } while (terminator == DELIMITER);
+
+                if (column > 0) {
+                    return new TransactionServiceRequest(transactionId, fromAccount, toAccount, amount);
+                }
+                if (terminator == END_OF_INPUT) {
+                    return null;
+                }
+            }
+        }
+
+        private int readField() throws IOException {
+            scratchLength = 0;
+            if (!ensure()) {
+                return fieldIn(scratch, 0, 0, END_OF_INPUT);
+            }
+            if (buffer[position] == '"') {
+                position++;
+                return readQuoted();
+            }
+            int start = position;
+            boolean spilled = false;
+            while (true) {
+                while (position < limit) {
+                    byte b = buffer[position];
+                    if (b == delimiter || b == '\n' || b == '\r') {
+                        if (spilled) {
+                            append(buffer, start, position - start);
+                            fieldIn(scratch, 0, scratchLength, 0);
+                        } else {
+                            fieldIn(buffer, start, position - start, 0);
+                        }
+                        return terminate(b);
+                    }
+                    position++;
+                }
+                // the field continues in the next read, which reuses the buffer
+                append(buffer, start, position - start);
+                spilled = true;
+                if (!ensure()) {
+                    return fieldIn(scratch, 0, scratchLength, END_OF_INPUT);
+                }
+                start = position;
+            }
+        }
+
+        private int readQuoted() throws IOException {
+            long startLine = line;
+            while (true) {
+                if (!ensure()) {
+                    throw new BadRequestException("Line " + startLine + ": unterminated quoted field");
+                }
+                byte b = buffer[position++];
+                if (b == '"') {
+                    if (ensure() && buffer[position] == '"') {
+                        position++;
+                        append(b);
+                        continue;
+                    }
+                    fieldIn(scratch, 0, scratchLength, 0);
+                    if (!ensure()) {
+                        return END_OF_INPUT;
+                    }
+                    byte next = buffer[position];
+                    if (next != delimiter && next != '\n' && next != '\r') {
+                        throw new BadRequestException("Line " + line + ": unexpected character after closing quote");
+                    }
+                    return terminate(next);
+                }
+                if (b == '\n') {
+                    line++;
+                }
+                append(b);
+            }
+        }
+
+        private int fieldIn(byte[] bytes, int offset, int length, int terminator) {
+            field = bytes;
+            fieldOffset = offset;
+            fieldLength = length;
+            return terminator;
+        }
+
+        /**
+         * Consumes the terminator at the current position. The line feed of a CRLF is skipped on the next
+         * read rather than looked ahead for, since reading ahead could overwrite the field still in the buffer.
+         */
+        private int terminate(byte b) {
+            position++;
+            if (b == delimiter) {
+                return DELIMITER;
+            }
+            skipLineFeed = b == '\r';
+            line++;
+            return END_OF_LINE;
+        }
+
+        private String string() {
+            return new String(field, fieldOffset, fieldLength, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Builds the amount from its digits when they fit a long, which covers any realistic amount;
+         * anything else goes through {@link BigDecimal}'s own parser.
+         */
+        private BigDecimal amount(long rowLine) {
+            if (fieldLength == 0) {
+                return null;
+            }
+            int index = fieldOffset;
+            int end = fieldOffset + fieldLength;
+            boolean negative = field[index] == '-';
+            if (negative || field[index] == '+') {
+                index++;
+            }
+            long unscaled = 0;
+            int scale = -1;
+            int digits = 0;
+            for (; index < end; index++) {
+                byte b = field[index];
+                if (b >= '0' && b <= '9' && digits < 18) {
+                    unscaled = unscaled * 10 + (b - '0');
+                    digits++;
+                    if (scale >= 0) {
+                        scale++;
+                    }
+                } else if (b == '.' && scale < 0) {
+                    scale = 0;
+                } else {
+                    return parseAmount(rowLine);
+                }
+            }
+            if (digits == 0) {
+                return parseAmount(rowLine);
+            }
+            return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+        }
+
+        private BigDecimal parseAmount(long rowLine) {
+            String amount = string().trim();
+            try {
+                return new BigDecimal(amount);
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("Line " + rowLine + ": invalid amount '" + amount + "'");
+            }
+        }
+
+        private void append(byte b) {
+            if (scratchLength == scratch.length) {
+                scratch = Arrays.copyOf(scratch, scratch.length * 2);
+            }
+            scratch[scratchLength++] = b;
+        }
+
+        private void append(byte[] bytes, int offset, int length) {
+            if (scratchLength + length > scratch.length) {
+                scratch = Arrays.copyOf(scratch, Math.max(scratch.length * 2, scratchLength + length));
+            }
+            System.arraycopy(bytes, offset, scratch, scratchLength, length);
+            scratchLength += length;
+        }
+
+        /**
+         * Makes sure at least one unread byte is buffered, refilling the buffer once it is used up.
+         */
+        private boolean ensure() throws IOException {
+            while (true) {
+                if (position == limit) {
+                    int read = in.read(buffer, 0, buffer.length);
+                    if (read < 0) {
+                        return false;
+                    }
+                    position = 0;
+                    limit = read;
+                    continue;
+                }
+                if (skipLineFeed) {
+                    skipLineFeed = false;
+                    if (buffer[position] == '\n') {
+                        position++;
+                        continue;
+                    }
+                }
+                return true;
+            }
+        }
+
+        void close() {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // the request body is being discarded anyway
+            }
+        }
+    }
+}
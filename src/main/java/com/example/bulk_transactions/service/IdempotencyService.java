@@ -0,0 +1,210 @@
+package com.example.bulk_transactions.service;
+
+import com.example.bulk_transactions.config.BulkProcessingProperties;
+import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import com.example.bulk_transactions.exception.IdempotencyConflictException;
+import com.example.bulk_transactions.model.ProcessedTransaction;
+import com.example.bulk_transactions.repository.ProcessedTransactionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Guards against sending the same transaction twice. Successful outcomes are remembered per owner,
+ * batchId and transactionId in a size-bounded, TTL-evicting cache (and optionally in the
+ * processed_transactions table); concurrent duplicates share the single call already in flight.
+ * Failed outcomes are not remembered, so re-posting a batch retries only what did not go through.
+ *
+ * <p>Each outcome is stored with a fingerprint of the accounts and amount it was for. A re-post that
+ * reuses a transactionId for a different transfer fails with an {@link IdempotencyConflictException}
+ * instead of being answered with the earlier outcome.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private static final String SUCCESS = "SUCCESS";
+
+    private record Completed(TransactionServiceResult result, String fingerprint) {
+    }
+
+    private record InFlight(Mono<TransactionServiceResult> call, String fingerprint) {
+    }
+
+    private final BulkProcessingProperties.Idempotency properties;
+    private final ProcessedTransactionRepository repository;
+    private final Cache<String, Completed> completed;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final Counter duplicateCounter;
+    private final Counter conflictCounter;
+
+    public IdempotencyService(BulkProcessingProperties properties, ProcessedTransactionRepository repository, MeterRegistry meterRegistry) {
+        this.properties = properties.getIdempotency();
+        this.repository = repository;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(this.properties.getMaxEntries())
+                .expireAfterWrite(this.properties.getTtl())
+                .build();
+        this.duplicateCounter = meterRegistry.counter("transactions.duplicate.count");
+        this.conflictCounter = meterRegistry.counter("transactions.idempotency.conflict.count");
+    }
+
+    /**
+     * Runs {@code call} with the transaction's idempotency key unless the same transaction already
+     * completed or is in flight. The owner is the tenant in the subscriber's context, so two users
+     * reusing a batchId never see each other's outcomes.
+     */
+    public Mono<TransactionServiceResult> deduplicate(String batchId, TransactionServiceRequest transaction,
+                                                      Function<String, Mono<TransactionServiceResult>> call) {
+        return Mono.deferContextual(context -> {
+            String owner = TenantScheduler.tenant(context);
+            String key = key(owner, batchId, transaction.getTransactionId());
+            if (!properties.isEnabled()) {
+                return call.apply(key);
+            }
+            String fingerprint = fingerprint(transaction);
+            Completed cached = completed.getIfPresent(key);
+            if (cached != null) {
+                return duplicate(key, cached, fingerprint);
+            }
+            InFlight running = inFlight.computeIfAbsent(key, k -> start(k, owner, batchId, fingerprint, call));
+            return running.fingerprint().equals(fingerprint) ? running.call() : conflict(key);
+        });
+    }
+
+    /**
+     * The call shared by concurrent duplicates. A caller that picked up this entry just as it finished
+     * subscribes after share() has reset, which runs the chain again; it checks the outcome remembered
+     * meanwhile first, so a completed transaction is not sent a second time.
+     */
+    private InFlight start(String key, String owner, String batchId, String fingerprint,
+                           Function<String, Mono<TransactionServiceResult>> call) {
+        AtomicReference<InFlight> self = new AtomicReference<>();
+        Mono<TransactionServiceResult> shared = Mono.defer(() -> {
+                    Completed done = completed.getIfPresent(key);
+                    if (done != null) {
+                        return duplicate(key, done, fingerprint);
+                    }
+                    return findPersisted(key)
+                            .flatMap(persisted -> duplicate(key, persisted, fingerprint))
+                            .switchIfEmpty(Mono.defer(() -> call.apply(key))
+                                    .flatMap(result -> remember(key, owner, batchId, fingerprint, result)));
+                })
+                // only this entry: a later call for the same key may already have replaced it
+                .doFinally(signal -> inFlight.remove(key, self.get()))
+                // unlike cache(), share() cancels the call once every waiting caller has cancelled
+                .share();
+        self.set(new InFlight(shared, fingerprint));
+        return self.get();
+    }
+
+    /**
+     * Identifies one transaction of one owner's batch, and is also sent to the transaction service as
+     * the {@code Idempotency-Key} header. The parts are length-prefixed before hashing, so no two
+     * different combinations of them can produce the same input.
+     */
+    static String key(String owner, String batchId, String transactionId) {
+        return digest(owner, batchId, transactionId);
+    }
+
+    /**
+     * What the transaction moves where; amounts that differ only in trailing zeros are the same amount.
+     */
+    static String fingerprint(TransactionServiceRequest transaction) {
+        BigDecimal amount = transaction.getAmount();
+        return digest(transaction.getFromAccount(), transaction.getToAccount(),
+                amount != null ? amount.stripTrailingZeros().toString() : null);
+    }
+
+    private static String digest(String... parts) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        for (String part : parts) {
+            byte[] bytes = part != null ? part.getBytes(StandardCharsets.UTF_8) : null;
+            digest.update(length.clear().putInt(bytes != null ? bytes.length : -1).array());
+            if (bytes != null) {
+                digest.update(bytes);
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+    }
+
+    private Mono<TransactionServiceResult> duplicate(String key, Completed completed, String fingerprint) {
+        if (!completed.fingerprint().equals(fingerprint)) {
+            return conflict(key);
+        }
+        log.debug("Skipping already completed transaction {}", key);
+        duplicateCounter.increment();
+        return Mono.just(completed.result());
+    }
+
+    private Mono<TransactionServiceResult> conflict(String key) {
+        log.debug("Transaction {} was already submitted with different details", key);
+        conflictCounter.increment();
+        return Mono.error(new IdempotencyConflictException(
+                "transactionId already used in this batch for a different transfer"));
+    }
+
+    private Mono<Completed> findPersisted(String key) {
+        if (!properties.isPersistent()) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> repository.findById(key))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(found -> Mono.justOrEmpty(found.map(entity -> new Completed(
+                        new TransactionServiceResult(entity.getTransactionId(), entity.getStatus(), null),
+                        entity.getRequestFingerprint()))))
+                .doOnNext(persisted -> completed.put(key, persisted));
+    }
+
+    private Mono<TransactionServiceResult> remember(String key, String owner, String batchId, String fingerprint,
+                                                    TransactionServiceResult result) {
+        if (!SUCCESS.equals(result.getStatus())) {
+            return Mono.just(result);
+        }
+        completed.put(key, new Completed(result, fingerprint));
+        if (!properties.isPersistent()) {
+            return Mono.just(result);
+        }
+        return Mono.fromCallable(() -> {
+                    ProcessedTransaction entity = new ProcessedTransaction();
+                    entity.setIdempotencyKey(key);
+                    entity.setOwner(owner);
+                    entity.setBatchId(batchId);
+                    entity.setRequestFingerprint(fingerprint);
+                    entity.setTransactionId(result.getTransactionId());
+                    entity.setStatus(result.getStatus());
+                    entity.setCompletedAt(Instant.now());
+                    return repository.save(entity);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .thenReturn(result)
+                .onErrorResume(e -> {
+                    log.warn("Could not record completed transaction {}: {}", key, e.getMessage());
+                    return Mono.just(result);
+                });
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.bulk_transactions.service;
+
+import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
+import com.example.bulk_transactions.exception.BadRequestException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Parses bulk request bodies incrementally so that only the transactions currently requested
+ * downstream are materialised. Items are pulled one at a time on a bounded-elastic thread, which
+ * lets the processing pipeline's demand act as backpressure on the request body.
+ */
+@Component
+public class StreamingBulkRequestReader {
+
+    private final ObjectMapper objectMapper;
+
+    public StreamingBulkRequestReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public record StreamingBulkRequest(String batchId, Flux<TransactionServiceRequest> transactions) {
+    }
+
+    /**
+     * Reads a {@code BulkTransactionRequest} JSON document up to the start of its {@code transactions}
+     * array. {@code batchId} has to come before the array since the items are processed as they are read.
+     */
+    public StreamingBulkRequest readJson(InputStream body) throws IOException {
+        JsonParser parser = objectMapper.createParser(body);
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            parser.close();
+            throw new BadRequestException("Request body must be a JSON object");
+        }
+
+        String batchId = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("batchId".equals(field)) {
+                batchId = parser.getValueAsString();
+            } else if ("transactions".equals(field) && value == JsonToken.START_ARRAY) {
+                if (batchId == null || batchId.isBlank()) {
+                    parser.close();
+                    throw new BadRequestException("batchId must precede transactions in a streamed request");
+                }
+                return new StreamingBulkRequest(batchId, transactions(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        parser.close();
+        throw new BadRequestException("At least one transaction is required");
+    }
+
+    /**
+     * Reads newline-delimited {@code TransactionServiceRequest} objects.
+     */
+    public Flux<TransactionServiceRequest> readNdjson(InputStream body) throws IOException {
+        return transactions(objectMapper.createParser(body));
+    }
+
+    private Flux<TransactionServiceRequest> transactions(JsonParser parser) {
+        return Flux.<TransactionServiceRequest>generate(sink -> {
+                    try {
+                        JsonToken token = parser.nextToken();
+                        if (token == JsonToken.START_OBJECT) {
+                            sink.next(objectMapper.readValue(parser, TransactionServiceRequest.class));
+                        } else if (token == null || token == JsonToken.END_ARRAY) {
+                            sink.complete();
+                        } else {
+                            sink.error(new BadRequestException("Expected a transaction object but found " + token));
+                        }
+                    } catch (IOException e) {
+                        sink.error(new BadRequestException("Malformed transaction: " + e.getMessage()));
+                    }
+                })
+                .doFinally(signal -> closeQuietly(parser))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static void closeQuietly(JsonParser parser) {
+        try {
+            parser.close();
+        } catch (IOException ignored) {
+            // the request body is being discarded anyway
+        }
+    }
+}
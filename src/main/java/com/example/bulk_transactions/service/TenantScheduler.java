@@ -0,0 +1,262 @@
+package com.example.bulk_transactions.service;
+
+import com.example.bulk_transactions.config.BulkProcessingProperties;
+import com.example.bulk_transactions.config.BulkProcessingProperties.Priority;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Shares downstream capacity between users. Every call to the transaction service takes one of
+ * {@code max-in-flight} global slots; when they are all taken, calls queue per user and per batch and
+ * are released lane by lane (HIGH, NORMAL, LOW), by start-time fair queuing across users weighted by
+ * their configured share, and round robin across the batches of one user. Each user is also held to its
+ * own in-flight cap, so a single large batch cannot take every slot.
+ *
+ * <p>The user is read from the Reactor context, where {@link #callerContext()} puts the authenticated
+ * principal of the request that assembled the pipeline.
+ */
+@Service
+public class TenantScheduler {
+
+    static final String TENANT_KEY = TenantScheduler.class.getName() + ".tenant";
+    static final String ANONYMOUS = "anonymous";
+
+    private final BulkProcessingProperties.Scheduling properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TenantQueue> tenants = new HashMap<>();
+    private final List<TenantQueue> backlogged = new ArrayList<>();
+    private final AtomicInteger drainWip = new AtomicInteger();
+    private int inFlight;
+    private double virtualTime;
+
+    public TenantScheduler(BulkProcessingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties.getScheduling();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Context carrying the principal of the current request, unless an outer pipeline already named the tenant.
+     */
+    public Function<Context, Context> callerContext() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String caller = authentication != null ? authentication.getName() : ANONYMOUS;
+        return context -> context.hasKey(TENANT_KEY) ? context : context.put(TENANT_KEY, caller);
+    }
+
+    static Context withTenant(String tenant) {
+        return Context.of(TENANT_KEY, tenant);
+    }
+
+    /**
+     * Defers subscribing to {@code call} until the tenant in the subscriber's context is granted a slot.
+     */
+    public <T> Mono<T> schedule(String batchId, Mono<T> call) {
+        if (!properties.isEnabled()) {
+            return call;
+        }
+        return Mono.deferContextual(context -> Mono.create(sink -> {
+            Ticket<T> ticket = new Ticket<>(tenantQueue(tenant(context)), batchId, call, sink);
+            sink.onCancel(ticket::cancel);
+            enqueue(ticket);
+        }));
+    }
+
+    static String tenant(ContextView context) {
+        return context.getOrDefault(TENANT_KEY, ANONYMOUS);
+    }
+
+    private synchronized TenantQueue tenantQueue(String tenant) {
+        return tenants.computeIfAbsent(tenant, this::newTenantQueue);
+    }
+
+    private TenantQueue newTenantQueue(String tenant) {
+        BulkProcessingProperties.Tenant settings = properties.getTenants().getOrDefault(tenant, new BulkProcessingProperties.Tenant());
+        TenantQueue queue = new TenantQueue(settings.getPriority(), settings.getWeight(),
+                settings.getMaxInFlight() != null ? settings.getMaxInFlight() : properties.getMaxInFlightPerTenant(),
+                Timer.builder("bulk.scheduler.wait").tag("tenant", tenant).register(meterRegistry));
+        Gauge.builder("bulk.scheduler.queue.depth", queue, q -> q.queued).tag("tenant", tenant).register(meterRegistry);
+        Gauge.builder("bulk.scheduler.in.flight", queue, q -> q.inFlight).tag("tenant", tenant).register(meterRegistry);
+        return queue;
+    }
+
+    private void enqueue(Ticket<?> ticket) {
+        synchronized (this) {
+            TenantQueue tenant = ticket.tenant;
+            if (tenant.queued == 0) {
+                // a tenant returning from idle starts at the current virtual time, it does not bank credit
+                tenant.virtualTime = Math.max(tenant.virtualTime, virtualTime);
+                backlogged.add(tenant);
+            }
+            tenant.batches.computeIfAbsent(ticket.batchId, batchId -> new ArrayDeque<>()).add(ticket);
+            tenant.queued++;
+        }
+        drain();
+    }
+
+    private void release(TenantQueue tenant) {
+        synchronized (this) {
+            tenant.inFlight--;
+            inFlight--;
+        }
+        drain();
+    }
+
+    /**
+     * Starts every ticket that can be granted a slot. Tickets are started outside the lock and a call
+     * completing synchronously re-enters here, so only one thread drains at a time and the others just
+     * flag that another pass is needed.
+     */
+    private void drain() {
+        if (drainWip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            Ticket<?> ticket;
+            while ((ticket = next()) != null) {
+                ticket.start();
+            }
+            missed = drainWip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private synchronized Ticket<?> next() {
+        while (inFlight < properties.getMaxInFlight()) {
+            TenantQueue selected = null;
+            for (TenantQueue tenant : backlogged) {
+                if (tenant.inFlight < tenant.maxInFlight && (selected == null
+                        || tenant.priority.ordinal() < selected.priority.ordinal()
+                        || tenant.priority == selected.priority && tenant.virtualTime < selected.virtualTime)) {
+                    selected = tenant;
+                }
+            }
+            if (selected == null) {
+                return null;
+            }
+            Ticket<?> ticket = selected.poll();
+            if (selected.queued == 0) {
+                backlogged.remove(selected);
+            }
+            if (ticket == null) {
+                continue;
+            }
+            virtualTime = selected.virtualTime;
+            selected.virtualTime += 1.0 / selected.weight;
+            selected.inFlight++;
+            inFlight++;
+            return ticket;
+        }
+        return null;
+    }
+
+    private static final class TenantQueue {
+
+        private final Priority priority;
+        private final int weight;
+        private final int maxInFlight;
+        private final Timer waitTimer;
+        private final LinkedHashMap<String, ArrayDeque<Ticket<?>>> batches = new LinkedHashMap<>();
+        private int queued;
+        private int inFlight;
+        private double virtualTime;
+
+        private TenantQueue(Priority priority, int weight, int maxInFlight, Timer waitTimer) {
+            this.priority = priority;
+            this.weight = weight;
+            this.maxInFlight = maxInFlight;
+            this.waitTimer = waitTimer;
+        }
+
+        /**
+         * Takes the head of the first batch and moves that batch to the back. Cancelled tickets are
+         * dropped on the way; null when only cancelled tickets were left.
+         */
+        private Ticket<?> poll() {
+            while (!batches.isEmpty()) {
+                String batchId = batches.keySet().iterator().next();
+                ArrayDeque<Ticket<?>> batch = batches.remove(batchId);
+                Ticket<?> ticket = batch.poll();
+                queued--;
+                if (!batch.isEmpty()) {
+                    batches.put(batchId, batch);
+                }
+                if (!ticket.cancelled) {
+                    return ticket;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final class Ticket<T> {
+
+        private final TenantQueue tenant;
+        private final String batchId;
+        private final Mono<T> call;
+        private final MonoSink<T> sink;
+        private final long enqueuedAt = System.nanoTime();
+        private boolean cancelled;
+        private Disposable running;
+
+        private Ticket(TenantQueue tenant, String batchId, Mono<T> call, MonoSink<T> sink) {
+            this.tenant = tenant;
+            this.batchId = batchId;
+            this.call = call;
+            this.sink = sink;
+        }
+
+        private void start() {
+            synchronized (TenantScheduler.this) {
+                if (cancelled) {
+                    tenant.inFlight--;
+                    inFlight--;
+                    return;
+                }
+            }
+            tenant.waitTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+            // subscribed from the drain rather than by the caller, so the caller's context is handed on explicitly
+            Disposable subscription = call
+                    .doFinally(signal -> release(tenant))
+                    .contextWrite(sink.contextView())
+                    .subscribe(sink::success, sink::error, sink::success);
+            boolean cancelledWhileStarting;
+            synchronized (TenantScheduler.this) {
+                running = subscription;
+                cancelledWhileStarting = cancelled;
+            }
+            if (cancelledWhileStarting) {
+                subscription.dispose();
+            }
+        }
+
+        private void cancel() {
+            Disposable subscription;
+            synchronized (TenantScheduler.this) {
+                cancelled = true;
+                subscription = running;
+            }
+            if (subscription != null) {
+                subscription.dispose();
+            }
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.example.bulk_transactions.exception.BadRequestException;
 import com.example.bulk_transactions.exception.InvalidCredentialsException;
 import com.example.bulk_transactions.model.AppUser;
 import com.example.bulk_transactions.repository.UserRepository;
+import com.example.bulk_transactions.security.CustomerDetailsService;
 import com.example.bulk_transactions.security.JwtService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,12 +20,15 @@ public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
+    private final CustomerDetailsService customerDetailsService;
 
     @Autowired
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtService jwtService) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtService jwtService,
+                       CustomerDetailsService customerDetailsService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtService = jwtService;
+        this.customerDetailsService = customerDetailsService;
     }
 
     public void registerUser(RegisterRequest request) {
@@ -38,6 +42,7 @@ public class UserService {
         user.setRole(request.getRole() != null ? request.getRole() : "ROLE_USER");
 
         userRepository.save(user);
+        customerDetailsService.evict(user.getUsername());
     }
 
     public String loginUser(LoginRequest request) {
@@ -0,0 +1,60 @@
+package com.example.bulk_transactions.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs blocking transaction service calls on virtual threads. A fair semaphore caps how many
+ * of them may be talking to the downstream at once, whatever the number of batches in progress.
+ */
+class VirtualThreadCallExecutor implements AutoCloseable {
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("bulk-vt-", 0).factory());
+    private final Semaphore downstreamPermits;
+
+    VirtualThreadCallExecutor(int maxDownstreamInFlight, MeterRegistry meterRegistry) {
+        this.downstreamPermits = new Semaphore(maxDownstreamInFlight, true);
+        Gauge.builder("bulk.virtual.threads.active", downstreamPermits, permits -> maxDownstreamInFlight - permits.availablePermits())
+                .description("Virtual threads currently in a call to the transaction service")
+                .register(meterRegistry);
+        Gauge.builder("bulk.virtual.threads.queued", downstreamPermits, Semaphore::getQueueLength)
+                .description("Virtual threads waiting for a downstream permit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Cancelling the returned Mono interrupts the virtual thread, whether it is still waiting for a
+     * permit or already blocked in the call.
+     */
+    Mono<Void> run(Runnable call) {
+        return Mono.create(sink -> {
+            Future<?> task = executor.submit(() -> {
+                try {
+                    downstreamPermits.acquire();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    call.run();
+                    sink.success();
+                } catch (Throwable e) {
+                    sink.error(e);
+                } finally {
+                    downstreamPermits.release();
+                }
+            });
+            sink.onCancel(() -> task.cancel(true));
+        });
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.bulk_transactions.web;
+
+import com.example.bulk_transactions.config.BulkProcessingProperties;
+import com.example.bulk_transactions.exception.PayloadTooLargeException;
+import com.example.bulk_transactions.exception.UnsupportedContentEncodingException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Inflates gzip and deflate request bodies as they are read, so large batches can cross bandwidth-bound
+ * links compressed. Inflating stops with a {@link PayloadTooLargeException} as soon as a body passes the
+ * configured decompressed size or compression ratio, so a compression bomb never expands in memory.
+ * Other encodings are refused through the MVC exception handlers, in the same error format as the API.
+ */
+@Component
+public class RequestDecompressionFilter extends OncePerRequestFilter {
+
+    private static final String ACCEPTED_ENCODINGS = "gzip, deflate";
+
+    private final BulkProcessingProperties.RequestDecompression properties;
+    private final HandlerExceptionResolver exceptionResolver;
+    private final Map<String, EncodingMeters> encodingMeters;
+    private final Counter unsupportedEncodings;
+    private final Counter oversized;
+    private final Counter overCompressed;
+
+    public RequestDecompressionFilter(BulkProcessingProperties properties, MeterRegistry meterRegistry,
+                                      @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver) {
+        this.properties = properties.getRequestDecompression();
+        this.exceptionResolver = exceptionResolver;
+        this.encodingMeters = Map.of(
+                "gzip", new EncodingMeters("gzip", meterRegistry),
+                "deflate", new EncodingMeters("deflate", meterRegistry));
+        this.unsupportedEncodings = rejections("encoding", meterRegistry);
+        this.oversized = rejections("size", meterRegistry);
+        this.overCompressed = rejections("ratio", meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !properties.isEnabled() || request.getHeader(HttpHeaders.CONTENT_ENCODING) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING).trim().toLowerCase(Locale.ROOT);
+        switch (encoding) {
+            case "identity" -> filterChain.doFilter(request, response);
+            case "gzip", "x-gzip" -> filterChain.doFilter(new DecompressedRequest(request, "gzip"), response);
+            case "deflate" -> filterChain.doFilter(new DecompressedRequest(request, "deflate"), response);
+            default -> {
+                unsupportedEncodings.increment();
+                response.setHeader(HttpHeaders.ACCEPT_ENCODING, ACCEPTED_ENCODINGS);
+                exceptionResolver.resolveException(request, response, null,
+                        new UnsupportedContentEncodingException("Unsupported Content-Encoding: " + encoding));
+            }
+        }
+    }
+
+    private static Counter rejections(String reason, MeterRegistry meterRegistry) {
+        return Counter.builder("bulk.request.decompression.rejected")
+                .description("Compressed request bodies rejected, by reason")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * The size ratio and inflate time of bodies in one encoding, registered once rather than per request.
+     */
+    private record EncodingMeters(DistributionSummary ratio, Timer time) {
+
+        private EncodingMeters(String encoding, MeterRegistry meterRegistry) {
+            this(DistributionSummary.builder("bulk.request.compression.ratio")
+                            .description("Decompressed to compressed size of request bodies")
+                            .tag("encoding", encoding)
+                            .register(meterRegistry),
+                    Timer.builder("bulk.request.decompression.time")
+                            .description("Time spent reading and inflating compressed request bodies")
+                            .tag("encoding", encoding)
+                            .register(meterRegistry));
+        }
+    }
+
+    /**
+     * The request as the controllers should see it: the inflated body, without the Content-Encoding and
+     * Content-Length headers that described the compressed one.
+     */
+    private final class DecompressedRequest extends HttpServletRequestWrapper {
+
+        private final String encoding;
+        private ServletInputStream inputStream;
+
+        private DecompressedRequest(HttpServletRequest request, String encoding) {
+            super(request);
+            this.encoding = encoding;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                inputStream = new InflatingInputStream(super.getInputStream(), encoding);
+            }
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String charset = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    charset != null ? Charset.forName(charset) : StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return isRemoved(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return isRemoved(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            return Collections.enumeration(Collections.list(super.getHeaderNames()).stream()
+                    .filter(name -> !isRemoved(name))
+                    .toList());
+        }
+
+        private static boolean isRemoved(String name) {
+            return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+        }
+    }
+
+    /**
+     * Inflates the body and counts bytes on both sides of the inflater, checking the limits after every read.
+     * The ratio and the time spent reading and inflating are recorded once, at the end of the body.
+     */
+    private final class InflatingInputStream extends ServletInputStream {
+
+        private final ServletInputStream compressed;
+        private final CountingInputStream counted;
+        private final String encoding;
+        private InputStream inflater;
+        private long inflated;
+        private long inflateNanos;
+        private boolean finished;
+
+        private InflatingInputStream(ServletInputStream compressed, String encoding) {
+            this.compressed = compressed;
+            this.counted = new CountingInputStream(compressed);
+            this.encoding = encoding;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (finished) {
+                return -1;
+            }
+            long startedAt = System.nanoTime();
+            if (inflater == null) {
+                // the gzip header is read here rather than up front, so nothing is read before the controller asks
+                inflater = "gzip".equals(encoding) ? new GZIPInputStream(counted, 8192) : new InflaterInputStream(counted);
+            }
+            int read = inflater.read(buffer, offset, length);
+            inflateNanos += System.nanoTime() - startedAt;
+            if (read == -1) {
+                finish();
+                return -1;
+            }
+            inflated += read;
+            checkLimits();
+            return read;
+        }
+
+        private void checkLimits() {
+            if (inflated > properties.getMaxSize().toBytes()) {
+                oversized.increment();
+                finished = true;
+                throw new PayloadTooLargeException("Decompressed request body exceeds " + properties.getMaxSize());
+            }
+            if (inflated > properties.getRatioCheckThreshold().toBytes()
+                    && inflated > counted.count * properties.getMaxRatio()) {
+                overCompressed.increment();
+                finished = true;
+                throw new PayloadTooLargeException("Request body expands more than " + properties.getMaxRatio()
+                        + " times when decompressed");
+            }
+        }
+
+        private void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            EncodingMeters meters = encodingMeters.get(encoding);
+            if (counted.count > 0) {
+                meters.ratio().record((double) inflated / counted.count);
+            }
+            meters.time().record(inflateNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return compressed.isReady();
+        }
+
+        /**
+         * Not supported: every reader of request bodies here (Jackson, the streaming JSON and NDJSON
+         * readers, the CSV reader) reads blocking on the request thread, and nothing puts a request into
+         * async mode before its body is read. Non-blocking reads could not be honoured anyway, as one
+         * inflate step may need several reads of the compressed stream, and {@link #isReady()} only vouches
+         * for the next one.
+         */
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new IllegalStateException("Compressed request bodies can only be read blocking");
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+            if (inflater != null) {
+                inflater.close();
+            } else {
+                compressed.close();
+            }
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read != -1) {
+                count++;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}
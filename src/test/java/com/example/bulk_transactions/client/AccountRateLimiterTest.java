@@ -0,0 +1,81 @@
+package com.example.bulk_transactions.client;
+
+import com.example.bulk_transactions.config.TransactionServiceProperties;
+import com.example.bulk_transactions.exception.TransactionServiceException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccountRateLimiterTest {
+
+    private TransactionServiceProperties.AccountRateLimit properties;
+    private SimpleMeterRegistry meterRegistry;
+    private VirtualTimeScheduler time;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TransactionServiceProperties.AccountRateLimit();
+        properties.setRatePerSecond(20);
+        properties.setBurst(3);
+        meterRegistry = new SimpleMeterRegistry();
+        time = VirtualTimeScheduler.create();
+    }
+
+    private AccountRateLimiter newLimiter() {
+        return new AccountRateLimiter(properties, meterRegistry, time, () -> time.now(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    void testBurstPassesAndTheRestIsPaced() {
+        AccountRateLimiter limiter = newLimiter();
+
+        // 3 immediately, then one every 50 ms
+        StepVerifier.create(Flux.range(0, 5).flatMap(i -> limiter.acquire("acct1", Mono.just(i))))
+                .expectNextCount(3)
+                .then(() -> time.advanceTimeBy(Duration.ofMillis(49)))
+                .expectNoEvent(Duration.ZERO)
+                .then(() -> time.advanceTimeBy(Duration.ofMillis(1)))
+                .expectNext(3)
+                .then(() -> time.advanceTimeBy(Duration.ofMillis(50)))
+                .expectNext(4)
+                .verifyComplete();
+        assertThat(meterRegistry.get("transaction.service.account.rate.delayed").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void testAccountsHaveSeparateBuckets() {
+        AccountRateLimiter limiter = newLimiter();
+
+        Flux.range(0, 3).flatMap(i -> limiter.acquire("acct1", Mono.just(i))).blockLast();
+        Flux.range(0, 3).flatMap(i -> limiter.acquire("acct2", Mono.just(i))).blockLast();
+
+        assertThat(meterRegistry.get("transaction.service.account.rate.delayed").counter().count()).isZero();
+    }
+
+    @Test
+    void testWaitBeyondMaxWaitIsRejected() {
+        properties.setMaxWait(Duration.ofMillis(60));
+        AccountRateLimiter limiter = newLimiter();
+
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire("acct1", Mono.empty()).subscribe();
+        }
+
+        // the fourth waits 50 ms, the fifth would wait 100 ms
+        StepVerifier.create(limiter.acquire("acct1", Mono.empty()))
+                .expectErrorSatisfies(error -> assertThat(error)
+                        .isInstanceOf(TransactionServiceException.class)
+                        .hasMessageContaining("Rate limit exceeded"))
+                .verify();
+        assertThat(meterRegistry.get("transaction.service.account.rate.rejected").counter().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.bulk_transactions.client;
+
+import com.example.bulk_transactions.config.TransactionServiceProperties;
+import com.example.bulk_transactions.exception.ConcurrencyLimitExceededException;
+import com.example.bulk_transactions.exception.TransactionServiceException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private TransactionServiceProperties.ConcurrencyLimit properties;
+    private SimpleMeterRegistry meterRegistry;
+    private VirtualTimeScheduler time;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TransactionServiceProperties.ConcurrencyLimit();
+        meterRegistry = new SimpleMeterRegistry();
+        time = VirtualTimeScheduler.create();
+    }
+
+    private AdaptiveConcurrencyLimiter newLimiter() {
+        return new AdaptiveConcurrencyLimiter(properties, meterRegistry, time, () -> time.now(TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Sends {@code calls} calls taking {@code latency} of virtual time each, at most {@code concurrency} at once.
+     */
+    private void run(AdaptiveConcurrencyLimiter limiter, int calls, Duration latency, int concurrency) {
+        StepVerifier.create(Flux.range(0, calls)
+                        .flatMap(i -> limiter.limit(Mono.delay(latency, time).then()), concurrency))
+                .then(() -> time.advanceTimeBy(latency.multipliedBy(calls)))
+                .verifyComplete();
+    }
+
+    @Test
+    void testCallsOverTheLimitWaitForASlot() {
+        properties.setInitialLimit(2);
+        properties.setMinLimit(2);
+        properties.setMaxLimit(2);
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+        AtomicInteger started = new AtomicInteger();
+        Sinks.Empty<Void> gate = Sinks.empty();
+
+        for (int i = 0; i < 5; i++) {
+            limiter.limit(gate.asMono().doOnSubscribe(s -> started.incrementAndGet())).subscribe();
+        }
+
+        assertThat(started).hasValue(2);
+        assertThat(meterRegistry.get("transaction.service.in.flight").gauge().value()).isEqualTo(2);
+        assertThat(meterRegistry.get("transaction.service.limit.pending").gauge().value()).isEqualTo(3);
+
+        gate.tryEmitEmpty();
+        assertThat(started).hasValue(5);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void testAimdGrowsUnderLoadAndBacksOffOnOverload() {
+        properties.setAlgorithm(TransactionServiceProperties.LimitAlgorithm.AIMD);
+        properties.setInitialLimit(10);
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+
+        run(limiter, 100, Duration.ofMillis(1), 50);
+        int grown = limiter.getLimit();
+        assertThat(grown).isGreaterThan(10);
+
+        limiter.limit(Mono.error(new TransactionServiceException("busy", 503)))
+                .onErrorResume(e -> Mono.empty())
+                .block();
+        assertThat(limiter.getLimit()).isLessThan(grown);
+    }
+
+    @Test
+    void testGradientShrinksWhenLatencyRises() {
+        properties.setInitialLimit(20);
+        properties.setMinLimit(2);
+        // the limit only moves while at least half of it is in use, so it is kept below the slow phase's 100 calls
+        properties.setMaxLimit(40);
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+
+        run(limiter, 200, Duration.ofMillis(1), 500);
+        int beforeSlowdown = limiter.getLimit();
+        assertThat(beforeSlowdown).isEqualTo(40);
+
+        run(limiter, 100, Duration.ofMillis(30), 500);
+
+        assertThat(limiter.getLimit()).isLessThan(beforeSlowdown);
+    }
+
+    @Test
+    void testBusinessErrorsDoNotShrinkTheLimit() {
+        properties.setAlgorithm(TransactionServiceProperties.LimitAlgorithm.AIMD);
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+        int initial = limiter.getLimit();
+
+        limiter.limit(Mono.error(new TransactionServiceException("Transaction declined", 422)))
+                .onErrorResume(e -> Mono.empty())
+                .block();
+
+        assertThat(limiter.getLimit()).isEqualTo(initial);
+        assertThat(AdaptiveConcurrencyLimiter.isOverload(new TimeoutException())).isTrue();
+        assertThat(AdaptiveConcurrencyLimiter.isOverload(new TransactionServiceException("slow down", 429))).isTrue();
+    }
+
+    @Test
+    void testWaitingTooLongIsRejected() {
+        properties.setInitialLimit(1);
+        properties.setMinLimit(1);
+        properties.setMaxLimit(1);
+        properties.setMaxWait(Duration.ofMillis(50));
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+        AtomicInteger started = new AtomicInteger();
+
+        limiter.limit(Mono.never()).subscribe();
+
+        StepVerifier.create(limiter.limit(Mono.fromRunnable(started::incrementAndGet)))
+                .then(() -> time.advanceTimeBy(Duration.ofMillis(49)))
+                .expectNoEvent(Duration.ZERO)
+                .then(() -> time.advanceTimeBy(Duration.ofMillis(1)))
+                .expectErrorSatisfies(error -> assertThat(error)
+                        .isInstanceOf(ConcurrencyLimitExceededException.class)
+                        .hasMessageContaining("Timed out waiting")
+                        .matches(e -> !new RetryableErrorPredicate().test(e), "is not retryable"))
+                .verify();
+        assertThat(started).hasValue(0);
+        assertThat(meterRegistry.get("transaction.service.limit.rejections").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testCallsRefusedByTheBreakerAreNotSamples() {
+        properties.setAlgorithm(TransactionServiceProperties.LimitAlgorithm.AIMD);
+        properties.setInitialLimit(2);
+        properties.setMinLimit(1);
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+        CircuitBreaker breaker = CircuitBreaker.ofDefaults("test");
+        breaker.transitionToOpenState();
+
+        for (int i = 0; i < 10; i++) {
+            limiter.limit(Mono.error(CallNotPermittedException.createCallNotPermittedException(breaker)))
+                    .onErrorResume(e -> Mono.empty())
+                    .block();
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(2);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+}
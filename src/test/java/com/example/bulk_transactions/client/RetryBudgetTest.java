@@ -0,0 +1,42 @@
+package com.example.bulk_transactions.client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetryBudgetTest {
+
+    @Test
+    void testMinimumRetriesAreAvailableBeforeAnyAttempt() {
+        RetryBudget budget = new RetryBudget(0.1, 2);
+
+        assertThat(budget.tryRetry()).isTrue();
+        assertThat(budget.tryRetry()).isTrue();
+        assertThat(budget.tryRetry()).isFalse();
+    }
+
+    @Test
+    void testRetriesGrowWithFirstAttempts() {
+        RetryBudget budget = new RetryBudget(0.1, 0);
+        for (int i = 0; i < 100; i++) {
+            budget.recordFirstAttempt();
+        }
+
+        int granted = 0;
+        while (budget.tryRetry()) {
+            granted++;
+        }
+
+        assertThat(granted).isEqualTo(10);
+        assertThat(budget.amplification()).isEqualTo(1.1);
+    }
+
+    @Test
+    void testAmplificationIsOneWithoutRetries() {
+        RetryBudget budget = new RetryBudget(0.1, 10);
+        budget.recordFirstAttempt();
+
+        assertThat(budget.amplification()).isEqualTo(1.0);
+        assertThat(new RetryBudget(0.1, 10).amplification()).isEqualTo(1.0);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.bulk_transactions.client;
+
+import com.example.bulk_transactions.config.TransactionServiceProperties;
+import com.example.bulk_transactions.dto.client.TransactionServiceBatchItem;
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import com.example.bulk_transactions.exception.TransactionServiceException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionMicroBatcherTest {
+
+    private TransactionMicroBatcher microBatcher;
+
+    private TransactionMicroBatcher microBatcher(Function<List<TransactionServiceBatchItem>, Mono<List<TransactionServiceResult>>> sender) {
+        TransactionServiceProperties.MicroBatching properties = new TransactionServiceProperties.MicroBatching();
+        properties.setMaxSize(2);
+        properties.setLinger(Duration.ofSeconds(5));
+        microBatcher = new TransactionMicroBatcher(properties, sender);
+        return microBatcher;
+    }
+
+    @AfterEach
+    void tearDown() {
+        microBatcher.close();
+    }
+
+    @Test
+    void testOutcomesOfTransactionsSharingAnIdGoToTheirOwnCallers() {
+        TransactionServiceBatchItem alices = new TransactionServiceBatchItem("tx-001", "acct1", "acct2", BigDecimal.TEN, "key-a");
+        TransactionServiceBatchItem bobs = new TransactionServiceBatchItem("tx-001", "acct3", "acct4", BigDecimal.ONE, "key-b");
+        TransactionMicroBatcher microBatcher = microBatcher(transactions -> Mono.just(transactions.stream()
+                .map(transaction -> "acct1".equals(transaction.getFromAccount())
+                        ? new TransactionServiceResult("tx-001", "SUCCESS", null)
+                        : new TransactionServiceResult("tx-001", "FAILED", "Insufficient funds"))
+                .toList()));
+
+        List<TransactionServiceResult> results = Mono.zip(microBatcher.submit(alices), microBatcher.submit(bobs),
+                        (first, second) -> List.of(first, second))
+                .block();
+
+        assertThat(results).extracting(TransactionServiceResult::getStatus).containsExactly("SUCCESS", "FAILED");
+    }
+
+    @Test
+    void testResponseThatDoesNotLineUpFailsTheWholeBatch() {
+        TransactionServiceBatchItem first = new TransactionServiceBatchItem("tx-001", "acct1", "acct2", BigDecimal.TEN, "key-a");
+        TransactionServiceBatchItem second = new TransactionServiceBatchItem("tx-002", "acct1", "acct2", BigDecimal.TEN, "key-b");
+        TransactionMicroBatcher microBatcher = microBatcher(transactions -> Mono.just(List.of(
+                new TransactionServiceResult("tx-001", "SUCCESS", null))));
+
+        assertThatThrownBy(() -> Mono.zip(microBatcher.submit(first), microBatcher.submit(second)).block())
+                .isInstanceOf(TransactionServiceException.class)
+                .hasMessageContaining("1 outcomes");
+    }
+
+    @Test
+    void testCallRunsInTheContextOfTheCallerThatOpenedIt() {
+        List<String> seen = new CopyOnWriteArrayList<>();
+        TransactionServiceBatchItem first = new TransactionServiceBatchItem("tx-001", "acct1", "acct2", BigDecimal.TEN, "key-a");
+        TransactionServiceBatchItem second = new TransactionServiceBatchItem("tx-002", "acct1", "acct2", BigDecimal.TEN, "key-b");
+        TransactionMicroBatcher microBatcher = microBatcher(transactions -> Mono.deferContextual(context -> {
+            seen.add(context.getOrDefault("caller", "none"));
+            return Mono.just(transactions.stream()
+                    .map(transaction -> new TransactionServiceResult(transaction.getTransactionId(), "SUCCESS", null))
+                    .toList());
+        }));
+
+        Mono.zip(microBatcher.submit(first).contextWrite(Context.of("caller", "alice")),
+                        microBatcher.submit(second).contextWrite(Context.of("caller", "bob")))
+                .block();
+
+        assertThat(seen).containsExactly("alice");
+    }
+}
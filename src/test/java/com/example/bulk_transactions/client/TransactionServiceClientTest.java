@@ -0,0 +1,311 @@
+package com.example.bulk_transactions.client;
+
+import com.example.bulk_transactions.config.TransactionServiceProperties;
+import com.example.bulk_transactions.dto.client.TransactionServiceBatchItem;
+import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import com.example.bulk_transactions.exception.TransactionServiceException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.util.context.Context;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionServiceClientTest {
+
+    private TransactionServiceStubServer stubServer;
+    private TransactionServiceProperties properties;
+    private TransactionServiceClient client;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+
+    @BeforeEach
+    void setUp() {
+        stubServer = new TransactionServiceStubServer(Duration.ofMillis(5), Set.of("tx-declined"));
+        properties = new TransactionServiceProperties();
+        properties.setBaseUrl(stubServer.baseUrl());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (client != null) {
+            client.shutdown();
+        }
+        stubServer.close();
+    }
+
+    private TransactionServiceClient buildClient() {
+        return buildClient(RateLimiterRegistry.ofDefaults());
+    }
+
+    private TransactionServiceClient buildClient(RateLimiterRegistry rateLimiterRegistry) {
+        return buildClient(rateLimiterRegistry, RetryConfig.custom().maxAttempts(1).build());
+    }
+
+    private TransactionServiceClient buildClient(RateLimiterRegistry rateLimiterRegistry, RetryConfig retryConfig) {
+        return new TransactionServiceClient(WebClient.builder(), properties, circuitBreakerRegistry,
+                RetryRegistry.of(retryConfig), rateLimiterRegistry, meterRegistry);
+    }
+
+    private static RetryConfig retryThreeTimes() {
+        return RetryConfig.custom()
+                .maxAttempts(3)
+                .waitDuration(Duration.ofMillis(10))
+                .retryOnException(new RetryableErrorPredicate())
+                .build();
+    }
+
+    private static TransactionServiceRequest transaction(String transactionId) {
+        return new TransactionServiceRequest(transactionId, "acct1", "acct2", BigDecimal.TEN);
+    }
+
+    @Test
+    void testSingleTransactionSuccess() {
+        client = buildClient();
+
+        client.processTransaction(transaction("tx-001"), "key-001").block();
+
+        assertThat(stubServer.requestCount()).isEqualTo(1);
+        assertThat(stubServer.lastIdempotencyKey()).isEqualTo("key-001");
+    }
+
+    @Test
+    void testSingleTransactionDeclined() {
+        client = buildClient();
+
+        assertThatThrownBy(() -> client.processTransaction(transaction("tx-declined"), "tx-declined").block())
+                .isInstanceOf(TransactionServiceException.class)
+                .hasMessageContaining("Transaction declined");
+    }
+
+    @Test
+    void testMicroBatchingCoalescesCallsAndMapsOutcomes() {
+        properties.getMicroBatching().setEnabled(true);
+        properties.getMicroBatching().setMaxSize(50);
+        properties.getMicroBatching().setLinger(Duration.ofMillis(50));
+        client = buildClient();
+
+        List<String> outcomes = Flux.range(0, 100)
+                .map(i -> i == 42 ? "tx-declined" : "tx-" + i)
+                .flatMap(id -> client.processTransaction(transaction(id), id)
+                        .thenReturn("SUCCESS")
+                        .onErrorResume(TransactionServiceException.class, e -> Mono.just(e.getMessage())), 100)
+                .collectList()
+                .block();
+
+        assertThat(outcomes).hasSize(100);
+        assertThat(outcomes).filteredOn("Transaction declined"::equals).hasSize(1);
+        assertThat(stubServer.requestCount()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    void testMicroBatchedTransactionsCarryTheirKeysAndRetryOnTheCallersBudget() {
+        stubServer.close();
+        stubServer = new TransactionServiceStubServer(Duration.ofMillis(500), Set.of());
+        properties.setBaseUrl(stubServer.baseUrl());
+        properties.setBatchResponseTimeout(Duration.ofMillis(50));
+        properties.getMicroBatching().setEnabled(true);
+        properties.getMicroBatching().setMaxSize(4);
+        properties.getMicroBatching().setLinger(Duration.ofMillis(200));
+        client = buildClient(RateLimiterRegistry.ofDefaults(), retryThreeTimes());
+        RetryBudget budget = new RetryBudget(0, 1);
+
+        Flux.range(0, 4)
+                .flatMap(i -> client.processTransaction(transaction("tx-" + i), "key-" + i).onErrorResume(e -> Mono.empty()))
+                .contextWrite(Context.of(RetryBudget.CONTEXT_KEY, budget))
+                .blockLast();
+
+        // one micro-batch of four first attempts, then the single retry the budget allows, sent on its own
+        assertThat(stubServer.requestCount()).isEqualTo(2);
+        assertThat(budget.amplification()).isEqualTo(1.25);
+        assertThat(stubServer.lastBatchIdempotencyKeys()).singleElement().asString().matches("key-[0-3]");
+    }
+
+    @Test
+    void testHttp2CleartextWithPriorKnowledge() {
+        properties.setProtocols(List.of(HttpProtocol.H2C));
+        client = buildClient();
+
+        Flux.range(0, 20)
+                .flatMap(i -> client.processTransaction(transaction("tx-" + i), "tx-" + i))
+                .blockLast();
+
+        assertThat(stubServer.requestCount()).isEqualTo(20);
+    }
+
+    @Test
+    void testResponseTimeout() {
+        stubServer.close();
+        stubServer = new TransactionServiceStubServer(Duration.ofMillis(500), Set.of());
+        properties.setBaseUrl(stubServer.baseUrl());
+        properties.setResponseTimeout(Duration.ofMillis(50));
+        client = buildClient();
+
+        assertThatThrownBy(() -> client.processTransaction(transaction("tx-001"), "tx-001").block())
+                .isInstanceOf(TransactionServiceException.class)
+                .hasMessageContaining("TransactionService unavailable");
+    }
+
+    @Test
+    void testConcurrencyLimitIsExported() {
+        properties.getConcurrencyLimit().setInitialLimit(20);
+        client = buildClient();
+
+        Flux.range(0, 50)
+                .flatMap(i -> client.processTransaction(transaction("tx-" + i), "tx-" + i))
+                .blockLast();
+
+        assertThat(stubServer.requestCount()).isEqualTo(50);
+        assertThat(meterRegistry.get("transaction.service.limit").gauge().value()).isPositive();
+        assertThat(meterRegistry.get("transaction.service.in.flight").gauge().value()).isZero();
+    }
+
+    @Test
+    void testConcurrencyLimitRejectionsAreNotRetriedOrRecordedByTheBreaker() {
+        properties.getConcurrencyLimit().setInitialLimit(1);
+        properties.getConcurrencyLimit().setMinLimit(1);
+        properties.getConcurrencyLimit().setMaxLimit(1);
+        properties.getConcurrencyLimit().setMaxPending(0);
+        client = buildClient(RateLimiterRegistry.ofDefaults(), retryThreeTimes());
+
+        List<String> outcomes = Flux.range(0, 20)
+                .flatMap(i -> client.processTransaction(transaction("tx-" + i), "tx-" + i)
+                        .thenReturn("SUCCESS")
+                        .onErrorResume(e -> Mono.just("REJECTED")))
+                .collectList()
+                .block();
+
+        CircuitBreaker.Metrics breaker = circuitBreakerRegistry.circuitBreaker("transaction-service-cb").getMetrics();
+        assertThat(outcomes).contains("REJECTED");
+        assertThat(breaker.getNumberOfFailedCalls()).isZero();
+        assertThat(breaker.getNumberOfSuccessfulCalls()).isEqualTo(stubServer.requestCount());
+        assertThat(meterRegistry.get("transaction.service.attempts").tag("attempt", "retry").counter().count()).isZero();
+    }
+
+    @Test
+    void testGlobalRateLimitPacesCallsWithoutFailingThem() {
+        client = buildClient(RateLimiterRegistry.of(RateLimiterConfig.custom()
+                .limitForPeriod(5)
+                .limitRefreshPeriod(Duration.ofMillis(100))
+                .timeoutDuration(Duration.ofSeconds(5))
+                .build()));
+
+        long start = System.nanoTime();
+        Flux.range(0, 15)
+                .flatMap(i -> client.processTransaction(transaction("tx-" + i), "tx-" + i))
+                .blockLast();
+
+        // 15 calls at 5 per period span three periods, so at least two refreshes 100 ms apart; the periods are
+        // counted from when the limiter was created, not from the first call, so more than that cannot be relied on
+        assertThat(stubServer.requestCount()).isEqualTo(15);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(100));
+    }
+
+    @Test
+    void testDeclinedTransactionIsNotRetried() {
+        client = buildClient(RateLimiterRegistry.ofDefaults(), retryThreeTimes());
+
+        assertThatThrownBy(() -> client.processTransaction(transaction("tx-declined"), "tx-declined").block())
+                .hasMessageContaining("Transaction declined");
+
+        assertThat(stubServer.requestCount()).isEqualTo(1);
+        assertThat(meterRegistry.get("transaction.service.attempts").tag("attempt", "retry").counter().count()).isZero();
+    }
+
+    @Test
+    void testTimeoutIsRetried() {
+        stubServer.close();
+        stubServer = new TransactionServiceStubServer(Duration.ofMillis(500), Set.of());
+        properties.setBaseUrl(stubServer.baseUrl());
+        properties.setResponseTimeout(Duration.ofMillis(50));
+        client = buildClient(RateLimiterRegistry.ofDefaults(), retryThreeTimes());
+
+        assertThatThrownBy(() -> client.processTransaction(transaction("tx-001"), "tx-001").block())
+                .isInstanceOf(TransactionServiceException.class);
+
+        assertThat(stubServer.requestCount()).isEqualTo(3);
+        assertThat(meterRegistry.get("transaction.service.attempts").tag("attempt", "retry").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void testExhaustedRetryBudgetStopsRetries() {
+        stubServer.close();
+        stubServer = new TransactionServiceStubServer(Duration.ofMillis(500), Set.of());
+        properties.setBaseUrl(stubServer.baseUrl());
+        properties.setResponseTimeout(Duration.ofMillis(50));
+        client = buildClient(RateLimiterRegistry.ofDefaults(), retryThreeTimes());
+        RetryBudget budget = new RetryBudget(0, 1);
+
+        Flux.range(0, 4)
+                .flatMap(i -> client.processTransaction(transaction("tx-" + i), "tx-" + i).onErrorResume(e -> Mono.empty()))
+                .contextWrite(Context.of(RetryBudget.CONTEXT_KEY, budget))
+                .blockLast();
+
+        // four first attempts and the single retry the budget allows
+        assertThat(stubServer.requestCount()).isEqualTo(5);
+        assertThat(budget.amplification()).isEqualTo(1.25);
+        assertThat(meterRegistry.get("transaction.service.retry.budget.exhausted").counter().count()).isPositive();
+    }
+
+    @Test
+    void testBinaryWireFormatsKeepAmountsExact() {
+        BigDecimal amount = new BigDecimal("1234567.8900");
+        for (TransactionServiceProperties.WireFormat format : TransactionServiceProperties.WireFormat.values()) {
+            properties.setWireFormat(format);
+            client = buildClient();
+
+            client.processTransaction(new TransactionServiceRequest("tx-single", "acct1", "acct2", amount), "tx-single").block();
+            assertThat(stubServer.lastReceived()).singleElement()
+                    .satisfies(received -> assertThat(received.getAmount()).isEqualTo(amount));
+
+            List<TransactionServiceResult> results = client.processTransactions(List.of(
+                    new TransactionServiceBatchItem("tx-1", "acct1", "acct2", amount, "key-1"),
+                    new TransactionServiceBatchItem("tx-declined", "acct1", "acct2", BigDecimal.ONE, "key-2"))).block();
+            assertThat(results).extracting("status").containsExactly("SUCCESS", "FAILED");
+            assertThat(stubServer.lastReceived().get(0).getAmount()).as(format.name()).isEqualTo(amount);
+
+            client.shutdown();
+        }
+        client = null;
+    }
+
+    @Test
+    void testCompressionGzipsLargeRequestsOnly() {
+        properties.getCompression().setEnabled(true);
+        properties.getCompression().setMinRequestSize(DataSize.ofKilobytes(1));
+        client = buildClient();
+
+        client.processTransaction(transaction("tx-small"), "tx-small").block();
+        assertThat(stubServer.lastContentEncoding()).isNull();
+
+        List<TransactionServiceBatchItem> transactions = IntStream.range(0, 200)
+                .mapToObj(i -> TransactionServiceBatchItem.of(transaction("tx-" + i), "key-" + i))
+                .toList();
+        List<TransactionServiceResult> results = client.processTransactions(transactions).block();
+
+        assertThat(stubServer.lastContentEncoding()).isEqualTo("gzip");
+        assertThat(stubServer.lastReceived()).hasSize(200);
+        assertThat(results).hasSize(200).extracting("status").containsOnly("SUCCESS");
+        assertThat(meterRegistry.get("transaction.service.compression.ratio").summary().mean()).isGreaterThan(5);
+    }
+}
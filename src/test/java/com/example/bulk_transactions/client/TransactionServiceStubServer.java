@@ -0,0 +1,152 @@
+package com.example.bulk_transactions.client;
+
+import com.example.bulk_transactions.dto.client.TransactionServiceBatchItem;
+import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Local stand-in for the transaction service, serving the single and bulk transaction endpoints in
+ * JSON, CBOR or Smile, following the request's content type. Gzip request bodies are inflated and
+ * responses are gzipped for clients accepting it. Transactions whose id is in {@code failingIds} are declined.
+ */
+public class TransactionServiceStubServer implements AutoCloseable {
+
+    private final Map<String, ObjectMapper> objectMappers = Map.of(
+            "application/json", Jackson2ObjectMapperBuilder.json().build(),
+            "application/cbor", Jackson2ObjectMapperBuilder.cbor().build(),
+            "application/x-jackson-smile", Jackson2ObjectMapperBuilder.smile().build());
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicReference<List<TransactionServiceRequest>> lastReceived = new AtomicReference<>(List.of());
+    private final AtomicReference<String> lastContentEncoding = new AtomicReference<>();
+    private final AtomicReference<String> lastIdempotencyKey = new AtomicReference<>();
+    private final AtomicReference<List<String>> lastBatchIdempotencyKeys = new AtomicReference<>(List.of());
+    private final Duration latency;
+    private final Set<String> failingIds;
+    private final DisposableServer server;
+
+    public TransactionServiceStubServer(Duration latency, Set<String> failingIds) {
+        this.latency = latency;
+        this.failingIds = failingIds;
+        this.server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .compress(true)
+                .route(routes -> routes
+                        .post("/api/v1/transactions", (request, response) -> request.receive().aggregate().asByteArray()
+                                .doOnNext(body -> lastIdempotencyKey.set(request.requestHeaders().get("Idempotency-Key")))
+                                .flatMap(body -> respondSingle(read(request, body, new TypeReference<TransactionServiceRequest>() {
+                                }), response)))
+                        .post("/api/v1/transactions/batch", (request, response) -> request.receive().aggregate().asByteArray()
+                                .flatMap(body -> respondBatch(request, read(request, body, new TypeReference<List<TransactionServiceBatchItem>>() {
+                                }), response))))
+                .bindNow();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.port();
+    }
+
+    public int requestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Transactions of the most recent request, as decoded by the stub.
+     */
+    public List<TransactionServiceRequest> lastReceived() {
+        return lastReceived.get();
+    }
+
+    /**
+     * Content-Encoding of the most recent request, null when it was sent uncompressed.
+     */
+    public String lastContentEncoding() {
+        return lastContentEncoding.get();
+    }
+
+    /**
+     * Idempotency-Key header of the most recent single-transaction request.
+     */
+    public String lastIdempotencyKey() {
+        return lastIdempotencyKey.get();
+    }
+
+    /**
+     * Idempotency keys of the items of the most recent bulk request, in request order.
+     */
+    public List<String> lastBatchIdempotencyKeys() {
+        return lastBatchIdempotencyKeys.get();
+    }
+
+    private Mono<Void> respondSingle(TransactionServiceRequest transaction, HttpServerResponse response) {
+        requestCount.incrementAndGet();
+        lastReceived.set(List.of(transaction));
+        HttpServerResponse delayed = response.header("Content-Type", "application/json");
+        if (failingIds.contains(transaction.getTransactionId())) {
+            return Mono.delay(latency).then(delayed.status(422).sendString(Mono.just("Transaction declined")).then());
+        }
+        return Mono.delay(latency).then(delayed.status(200).send().then());
+    }
+
+    private Mono<Void> respondBatch(HttpServerRequest request, List<TransactionServiceBatchItem> items,
+                                    HttpServerResponse response) {
+        requestCount.incrementAndGet();
+        List<TransactionServiceRequest> transactions = items.stream()
+                .map(item -> new TransactionServiceRequest(item.getTransactionId(), item.getFromAccount(), item.getToAccount(), item.getAmount()))
+                .toList();
+        lastReceived.set(transactions);
+        lastBatchIdempotencyKeys.set(items.stream().map(TransactionServiceBatchItem::getIdempotencyKey).toList());
+        List<TransactionServiceResult> results = transactions.stream()
+                .map(transaction -> failingIds.contains(transaction.getTransactionId())
+                        ? new TransactionServiceResult(transaction.getTransactionId(), "FAILED", "Transaction declined")
+                        : new TransactionServiceResult(transaction.getTransactionId(), "SUCCESS", null))
+                .toList();
+        String contentType = contentType(request);
+        return Mono.delay(latency).then(response.header("Content-Type", contentType)
+                .sendByteArray(Mono.fromCallable(() -> objectMappers.get(contentType).writeValueAsBytes(results)))
+                .then());
+    }
+
+    private <T> T read(HttpServerRequest request, byte[] body, TypeReference<T> type) {
+        String contentEncoding = request.requestHeaders().get("Content-Encoding");
+        lastContentEncoding.set(contentEncoding);
+        try {
+            if ("gzip".equals(contentEncoding)) {
+                body = new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes();
+            }
+            return objectMappers.get(contentType(request)).readValue(body, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String contentType(HttpServerRequest request) {
+        return request.requestHeaders().get("Content-Type", "application/json").split(";")[0].trim();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.bulk_transactions.controller;
 
 import com.example.bulk_transactions.dto.BulkTransactionRequest;
+import com.example.bulk_transactions.dto.BulkTransactionResponse;
 import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
 import com.example.bulk_transactions.model.AppUser;
 import com.example.bulk_transactions.repository.UserRepository;
@@ -12,15 +13,28 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -101,6 +115,104 @@ class BulkTransactionControllerTest {
                 .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    void testSubmitBulkJobReturnsAccepted() throws Exception {
+        BulkTransactionRequest request = new BulkTransactionRequest(
+                "batch-2",
+                List.of(
+                        new TransactionServiceRequest("tx-3", "src3", "dest3", BigDecimal.valueOf(300))
+                )
+        );
+
+        mockMvc.perform(post("/api/v1/bulk-transactions/jobs")
+                        .header("Authorization", "Bearer " + userValidToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andExpect(jsonPath("$.jobId").exists())
+                .andExpect(jsonPath("$.total").value(1));
+    }
+
+    @Test
+    void testUnknownBulkJobReturnsNotFound() throws Exception {
+        mockMvc.perform(get("/api/v1/bulk-transactions/jobs/unknown")
+                        .header("Authorization", "Bearer " + userValidToken))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testNdjsonIngestionRequiresBatchId() throws Exception {
+        mockMvc.perform(post("/api/v1/bulk-transactions/ingest")
+                        .header("Authorization", "Bearer " + userValidToken)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .content("{\"transactionId\": \"tx-1\", \"fromAccount\": \"src1\", \"toAccount\": \"dest1\", \"amount\": 10}\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testIngestionRejectsEmptyBatches() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "payments.csv", "text/csv",
+                "transactionId,fromAccount,toAccount,amount\n".getBytes());
+        List<MockHttpServletRequestBuilder> requests = List.of(
+                post("/api/v1/bulk-transactions/ingest")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"batchId\": \"batch-empty\", \"transactions\": []}"),
+                post("/api/v1/bulk-transactions/ingest?batchId=batch-empty")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(""),
+                post("/api/v1/bulk-transactions/ingest?batchId=batch-empty")
+                        .contentType("text/csv")
+                        .content("transactionId,fromAccount,toAccount,amount\n"),
+                multipart("/api/v1/bulk-transactions/ingest")
+                        .file(file)
+                        .param("batchId", "batch-empty"));
+
+        for (MockHttpServletRequestBuilder ingest : requests) {
+            MvcResult result = mockMvc.perform(ingest
+                            .header("Authorization", "Bearer " + userValidToken)
+                            .accept(MediaType.APPLICATION_NDJSON))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.message").value("At least one transaction is required"));
+        }
+    }
+
+    @Test
+    void testCsvIngestionStreamsOneResultPerRow() throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/v1/bulk-transactions/ingest?batchId=batch-csv")
+                        .header("Authorization", "Bearer " + userValidToken)
+                        .contentType("text/csv")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .content("transactionId,fromAccount,toAccount,amount\ntx-1,src1,dest1,10.00\ntx-2,src2,dest2,0\n"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(body.lines()).hasSize(2);
+        assertThat(body).contains("\"tx-1\"").contains("\"tx-2\"").contains("Validation failed: amount");
+    }
+
+    @Test
+    void testCsvFileUploadRequiresHeader() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "payments.csv", "text/csv",
+                "tx-1,src1,dest1,10.00\n".getBytes());
+
+        mockMvc.perform(multipart("/api/v1/bulk-transactions/ingest")
+                        .file(file)
+                        .param("batchId", "batch-csv")
+                        .header("Authorization", "Bearer " + userValidToken)
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testAdminCanAccessHealthEndpoint() throws Exception {
         mockMvc.perform(get("/actuator/health")
@@ -115,4 +227,76 @@ class BulkTransactionControllerTest {
                 .andExpect(status().isForbidden());
     }
 
+    @Test
+    void testProcessBulkTransactionsInCbor() throws Exception {
+        ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+        BulkTransactionRequest request = new BulkTransactionRequest(
+                "batch-cbor",
+                List.of(
+                        new TransactionServiceRequest("tx-1", "src1", "dest1", new BigDecimal("1000.25")),
+                        new TransactionServiceRequest("tx-2", "src2", "dest2", new BigDecimal("0.01"))
+                )
+        );
+
+        MvcResult result = mockMvc.perform(post("/api/v1/bulk-transactions")
+                        .header("Authorization", "Bearer " + userValidToken)
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .content(cborMapper.writeValueAsBytes(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+        BulkTransactionResponse response = cborMapper.readValue(body, BulkTransactionResponse.class);
+
+        assertThat(response.getBatchId()).isEqualTo("batch-cbor");
+        assertThat(response.getResults()).extracting("transactionId").containsExactly("tx-1", "tx-2");
+    }
+
+    @Test
+    void testProcessGzipCompressedBulkTransactions() throws Exception {
+        BulkTransactionRequest request = new BulkTransactionRequest(
+                "batch-gzip",
+                List.of(new TransactionServiceRequest("tx-1", "src1", "dest1", BigDecimal.valueOf(1000)))
+        );
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            objectMapper.writeValue(gzip, request);
+        }
+
+        MvcResult result = mockMvc.perform(post("/api/v1/bulk-transactions")
+                        .header("Authorization", "Bearer " + userValidToken)
+                        .header("Content-Encoding", "gzip")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(compressed.toByteArray()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.batchId").value("batch-gzip"));
+    }
+
+    @Test
+    void testGzipBodyInflatingPastTheLimitsReturnsPayloadTooLarge() throws Exception {
+        BulkTransactionRequest request = new BulkTransactionRequest(
+                "batch-gzip-bomb",
+                List.of(new TransactionServiceRequest("x".repeat(4 * 1024 * 1024), "src1", "dest1", BigDecimal.ONE))
+        );
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            objectMapper.writeValue(gzip, request);
+        }
+
+        mockMvc.perform(post("/api/v1/bulk-transactions")
+                        .header("Authorization", "Bearer " + userValidToken)
+                        .header("Content-Encoding", "gzip")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(compressed.toByteArray()))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.error").value("Payload Too Large"));
+    }
 }
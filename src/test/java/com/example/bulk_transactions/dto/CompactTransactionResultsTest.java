@@ -0,0 +1,62 @@
+package com.example.bulk_transactions.dto;
+
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactTransactionResultsTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private static List<TransactionServiceResult> sample(int size) {
+        List<TransactionServiceResult> results = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            results.add(i % 3 == 0
+                    ? new TransactionServiceResult("tx-" + i, "FAILED", new String("Transaction declined"))
+                    : new TransactionServiceResult("tx-" + i, "SUCCESS", null));
+        }
+        return results;
+    }
+
+    @Test
+    void testReadsBackWhatWasAddedPastItsInitialCapacity() {
+        List<TransactionServiceResult> expected = sample(100);
+        CompactTransactionResults results = new CompactTransactionResults(10);
+        expected.forEach(results::add);
+
+        assertThat(results).hasSize(100).isEqualTo(expected);
+        assertThat(results.get(3).getReason()).isSameAs(results.get(6).getReason());
+    }
+
+    @Test
+    void testSerializesLikeAListOfResults() throws Exception {
+        List<TransactionServiceResult> expected = sample(10);
+        CompactTransactionResults results = new CompactTransactionResults(expected.size());
+        expected.forEach(results::add);
+
+        assertThat(objectMapper.writeValueAsString(new BulkTransactionResponse("batch-001", results)))
+                .isEqualTo(objectMapper.writeValueAsString(new BulkTransactionResponse("batch-001", expected)));
+    }
+
+    @Test
+    void testStatusesPastTheCodeRangeAreRecordedAsFailed() {
+        CompactTransactionResults results = new CompactTransactionResults(200);
+        for (int i = 0; i < 200; i++) {
+            results.add(new TransactionServiceResult("tx-" + i, "STATUS_" + i, "reason " + i));
+        }
+        results.add(new TransactionServiceResult("tx-200", "STATUS_0", null));
+
+        assertThat(results).hasSize(201);
+        assertThat(results.get(126).getStatus()).isEqualTo("STATUS_126");
+        assertThat(results.get(127).getStatus()).isEqualTo("FAILED");
+        assertThat(results.get(127).getReason()).isEqualTo("reason 127");
+        assertThat(results.get(199).getStatus()).isEqualTo("FAILED");
+        assertThat(results.get(200).getStatus()).isEqualTo("STATUS_0");
+    }
+}
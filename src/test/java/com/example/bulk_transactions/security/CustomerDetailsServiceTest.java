@@ -0,0 +1,100 @@
+package com.example.bulk_transactions.security;
+
+import com.example.bulk_transactions.config.AuthProperties;
+import com.example.bulk_transactions.model.AppUser;
+import com.example.bulk_transactions.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomerDetailsServiceTest {
+
+    private UserRepository userRepository;
+    private AuthProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        properties = new AuthProperties();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private AppUser user(String role) {
+        AppUser user = new AppUser();
+        user.setUsername("john");
+        user.setPassword("hashed");
+        user.setRole(role);
+        return user;
+    }
+
+    @Test
+    void testRepeatedLookupsHitTheCacheUntilEvicted() {
+        when(userRepository.findByUsername("john")).thenReturn(Optional.of(user("ROLE_USER")));
+        CustomerDetailsService service = new CustomerDetailsService(userRepository, properties, meterRegistry);
+
+        service.loadUserByUsername("john");
+        UserDetails cached = service.loadUserByUsername("john");
+
+        assertThat(cached.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_USER");
+        verify(userRepository, times(1)).findByUsername("john");
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "user-details").tag("result", "hit").functionCounter().count())
+                .isEqualTo(1);
+
+        when(userRepository.findByUsername("john")).thenReturn(Optional.of(user("ROLE_ADMIN")));
+        service.evict("john");
+
+        assertThat(service.loadUserByUsername("john").getAuthorities())
+                .extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_ADMIN");
+        verify(userRepository, times(2)).findByUsername("john");
+    }
+
+    @Test
+    void testUnknownUserIsNotCached() {
+        when(userRepository.findByUsername("john")).thenReturn(Optional.empty());
+        CustomerDetailsService service = new CustomerDetailsService(userRepository, properties, meterRegistry);
+
+        assertThatThrownBy(() -> service.loadUserByUsername("john")).isInstanceOf(UsernameNotFoundException.class);
+
+        when(userRepository.findByUsername("john")).thenReturn(Optional.of(user("ROLE_USER")));
+        assertThat(service.loadUserByUsername("john").getUsername()).isEqualTo("john");
+    }
+
+    @Test
+    void testTrustedRoleClaimSkipsTheLookup() {
+        properties.setTrustRoleClaims(true);
+        CustomerDetailsService service = new CustomerDetailsService(userRepository, properties, meterRegistry);
+        Claims claims = Jwts.claims().subject("john").add(CustomerDetailsService.ROLE_CLAIM, "ROLE_ADMIN").build();
+
+        UserDetails userDetails = service.loadUserByClaims(claims);
+
+        assertThat(userDetails.getUsername()).isEqualTo("john");
+        assertThat(userDetails.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_ADMIN");
+        verify(userRepository, never()).findByUsername("john");
+    }
+
+    @Test
+    void testRoleClaimIsIgnoredUnlessTrusted() {
+        when(userRepository.findByUsername("john")).thenReturn(Optional.of(user("ROLE_USER")));
+        CustomerDetailsService service = new CustomerDetailsService(userRepository, properties, meterRegistry);
+        Claims claims = Jwts.claims().subject("john").add(CustomerDetailsService.ROLE_CLAIM, "ROLE_ADMIN").build();
+
+        assertThat(service.loadUserByClaims(claims).getAuthorities())
+                .extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_USER");
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.bulk_transactions.security;
+
+import com.example.bulk_transactions.model.AppUser;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "h8jdMysWxPFLStqi/OzPDON0kJob/dXYaIPJg60X8Bg=";
+
+    private JwtService jwtService;
+    private AppUser user;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService(SECRET, 300_000, 100);
+        user = new AppUser();
+        user.setUsername("testuser");
+        user.setRole("USER");
+    }
+
+    @Test
+    void testRepeatedLookupsReturnVerifiedClaims() {
+        String token = jwtService.generateToken(user);
+
+        Claims first = jwtService.extractAllClaims(token);
+        Claims second = jwtService.extractAllClaims(token);
+
+        assertThat(second).isSameAs(first);
+        assertThat(jwtService.extractUsername(token)).isEqualTo("testuser");
+        assertThat(jwtService.isTokenValid(token, User.withUsername("testuser").password("x").roles("USER").build())).isTrue();
+        assertThat(jwtService.isTokenValid(token, User.withUsername("other").password("x").roles("USER").build())).isFalse();
+    }
+
+    @Test
+    void testTamperedTokenIsRejectedEvenWhenOriginalIsCached() {
+        String token = jwtService.generateToken(user);
+        jwtService.extractAllClaims(token);
+
+        String[] parts = token.split("\\.");
+        String forgedPayload = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("{\"sub\":\"admin\",\"exp\":9999999999}".getBytes());
+        String tampered = parts[0] + "." + forgedPayload + "." + parts[2];
+
+        assertThatThrownBy(() -> jwtService.extractAllClaims(tampered)).isInstanceOf(SignatureException.class);
+    }
+
+    @Test
+    void testExpiredTokenIsRejected() {
+        String token = new JwtService(SECRET, -1_000, 100).generateToken(user);
+
+        assertThatThrownBy(() -> jwtService.extractAllClaims(token)).isInstanceOf(ExpiredJwtException.class);
+        assertThatThrownBy(() -> jwtService.extractAllClaims(token)).isInstanceOf(ExpiredJwtException.class);
+    }
+}
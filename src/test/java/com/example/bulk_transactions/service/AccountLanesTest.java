@@ -0,0 +1,93 @@
+package com.example.bulk_transactions.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccountLanesTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AccountLanes lanes = new AccountLanes(16, new AccountLanes.Metrics(meterRegistry));
+    private final VirtualTimeScheduler time = VirtualTimeScheduler.create();
+
+    @Test
+    void testSameAccountRunsOneAtATimeInSubmissionOrder() {
+        List<Integer> started = new CopyOnWriteArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        StepVerifier.create(Flux.range(0, 20)
+                        .flatMap(i -> lanes.submit("acct1", Mono.defer(() -> {
+                            started.add(i);
+                            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                            return Mono.delay(Duration.ofMillis(2), time).doOnNext(tick -> running.decrementAndGet());
+                        })), 20))
+                .then(() -> time.advanceTimeBy(Duration.ofMillis(40)))
+                .expectNextCount(20)
+                .verifyComplete();
+
+        assertThat(started).containsExactlyElementsOf(Flux.range(0, 20).collectList().block());
+        assertThat(maxRunning).hasValue(1);
+        // all 20 are submitted before the first completes, so every one after the first waits
+        assertThat(meterRegistry.get("bulk.lanes.contended").counter().count()).isEqualTo(19);
+        assertThat(meterRegistry.get("bulk.lanes.queued").gauge().value()).isZero();
+    }
+
+    @Test
+    void testDifferentLanesRunInParallel() {
+        AccountLanes manyLanes = new AccountLanes(1024, new AccountLanes.Metrics(meterRegistry));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        StepVerifier.create(Flux.range(0, 8)
+                        .flatMap(i -> manyLanes.submit("acct" + i, Mono.defer(() -> {
+                            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                            return Mono.delay(Duration.ofMillis(50), time).doOnNext(tick -> running.decrementAndGet());
+                        })), 8))
+                .then(() -> time.advanceTimeBy(Duration.ofMillis(400)))
+                .expectNextCount(8)
+                .verifyComplete();
+
+        assertThat(maxRunning.get()).isGreaterThan(1);
+    }
+
+    @Test
+    void testLongLaneOfSynchronousTasksDoesNotRecurse() {
+        Long count = Flux.range(0, 100_000)
+                .flatMap(i -> lanes.submit("acct1", Mono.just(i)), 256)
+                .count()
+                .block();
+
+        assertThat(count).isEqualTo(100_000);
+    }
+
+    @Test
+    void testCancelledTaskIsSkippedAndFreesTheLane() {
+        Sinks.One<String> first = Sinks.one();
+        AtomicInteger subscribed = new AtomicInteger();
+
+        lanes.submit("acct1", first.asMono()).subscribe();
+        Disposable second = lanes.submit("acct1", Mono.fromSupplier(() -> {
+            subscribed.incrementAndGet();
+            return "second";
+        })).subscribe();
+        second.dispose();
+        first.tryEmitValue("first");
+        String third = lanes.submit("acct1", Mono.just("third")).block(Duration.ofSeconds(1));
+
+        assertThat(subscribed).hasValue(0);
+        assertThat(third).isEqualTo("third");
+    }
+}
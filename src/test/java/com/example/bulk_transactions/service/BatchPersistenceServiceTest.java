@@ -0,0 +1,254 @@
+package com.example.bulk_transactions.service;
+
+import com.example.bulk_transactions.config.BulkProcessingProperties;
+import com.example.bulk_transactions.dto.BulkTransactionRequest;
+import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import com.example.bulk_transactions.model.Batch;
+import com.example.bulk_transactions.model.TransactionOutcome;
+import com.example.bulk_transactions.repository.BatchRepository;
+import com.example.bulk_transactions.repository.BatchTransactionRepository;
+import com.example.bulk_transactions.repository.TransactionOutcomeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BatchPersistenceServiceTest {
+
+    @Autowired
+    private BatchPersistenceService batchPersistenceService;
+
+    @Autowired
+    private BatchRepository batchRepository;
+
+    @Autowired
+    private TransactionOutcomeRepository transactionOutcomeRepository;
+
+    @Autowired
+    private BatchTransactionRepository batchTransactionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private BulkProcessingProperties properties;
+
+    private BatchPersistenceService restarted;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (restarted != null) {
+            restarted.shutdown();
+        }
+    }
+
+    /**
+     * The service as this instance sees it after a restart: nothing held, the same instance id.
+     */
+    private BatchPersistenceService restarted() {
+        restarted = new BatchPersistenceService(entityManager, transactionTemplate, batchRepository, batchTransactionRepository,
+                transactionOutcomeRepository, properties, new SimpleMeterRegistry());
+        return restarted;
+    }
+
+    private BulkTransactionRequest buildRequest() {
+        TransactionServiceRequest tx1 = new TransactionServiceRequest("tx-001", "acct1", "acct2", BigDecimal.valueOf(100));
+        TransactionServiceRequest tx2 = new TransactionServiceRequest("tx-002", "acct1", "acct3", BigDecimal.valueOf(200));
+        TransactionServiceRequest tx3 = new TransactionServiceRequest("tx-003", "acct2", "acct3", BigDecimal.valueOf(300));
+        return new BulkTransactionRequest("batch-001", List.of(tx1, tx2, tx3));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    @Test
+    void testUnfinishedBatchIsResumableFromStoredOutcomes() throws InterruptedException {
+        String jobId = UUID.randomUUID().toString();
+        long batchPk = batchPersistenceService.createBatch(jobId, buildRequest(), "user");
+
+        batchPersistenceService.recordOutcome(batchPk, 0, new TransactionServiceResult("tx-001", "SUCCESS", null));
+        batchPersistenceService.recordOutcome(batchPk, 1, new TransactionServiceResult("tx-002", "FAILED", "declined"));
+        awaitTrue(() -> transactionOutcomeRepository.findByBatchPkOrderByPosition(batchPk).size() == 2);
+
+        BatchPersistenceService.ResumableBatch resumable = restarted().findResumableBatches().stream()
+                .filter(batch -> batch.jobId().equals(jobId))
+                .findFirst()
+                .orElseThrow();
+        assertThat(resumable.batchId()).isEqualTo("batch-001");
+        assertThat(resumable.owner()).isEqualTo("user");
+        assertThat(resumable.total()).isEqualTo(3);
+        assertThat(resumable.stored()).extracting(result -> result != null ? result.getTransactionId() : null)
+                .containsExactly("tx-001", "tx-002", null);
+        assertThat(resumable.stored().get(1).getReason()).isEqualTo("declined");
+        assertThat(resumable.remaining()).extracting(TransactionServiceRequest::getTransactionId).containsExactly("tx-003");
+    }
+
+    @Test
+    void testFinishedBatchIsNotResumed() throws InterruptedException {
+        String jobId = UUID.randomUUID().toString();
+        long batchPk = batchPersistenceService.createBatch(jobId, buildRequest(), "user");
+
+        batchPersistenceService.finishBatch(batchPk, "COMPLETED");
+        awaitTrue(() -> batchRepository.findById(batchPk).orElseThrow().getStatus().equals("COMPLETED"));
+
+        assertThat(restarted().findResumableBatches())
+                .noneMatch(batch -> batch.jobId().equals(jobId));
+    }
+
+    @Test
+    void testResumeSkipsOnlyThePositionsWithStoredOutcomes() throws InterruptedException {
+        String jobId = UUID.randomUUID().toString();
+        long batchPk = batchPersistenceService.createBatch(jobId, buildRequest(), "user");
+
+        batchPersistenceService.recordOutcome(batchPk, 0, new TransactionServiceResult("tx-001", "SUCCESS", null));
+        batchPersistenceService.recordOutcome(batchPk, 2, new TransactionServiceResult("tx-003", "SUCCESS", null));
+        awaitTrue(() -> transactionOutcomeRepository.findByBatchPkOrderByPosition(batchPk).size() == 2);
+
+        BatchPersistenceService.ResumableBatch resumable = restarted().findResumableBatches().stream()
+                .filter(batch -> batch.jobId().equals(jobId))
+                .findFirst()
+                .orElseThrow();
+        assertThat(resumable.stored()).extracting(result -> result != null ? result.getTransactionId() : null)
+                .containsExactly("tx-001", null, "tx-003");
+        assertThat(resumable.remaining()).extracting(TransactionServiceRequest::getTransactionId).containsExactly("tx-002");
+    }
+
+    @Test
+    void testAmountIsResumedExactlyAsSubmitted() {
+        String jobId = UUID.randomUUID().toString();
+        BigDecimal amount = new BigDecimal("100.12345");
+        BulkTransactionRequest request = new BulkTransactionRequest("batch-001",
+                List.of(new TransactionServiceRequest("tx-001", "acct1", "acct2", amount)));
+        batchPersistenceService.createBatch(jobId, request, "user");
+
+        BatchPersistenceService.ResumableBatch resumable = restarted().findResumableBatches().stream()
+                .filter(batch -> batch.jobId().equals(jobId))
+                .findFirst()
+                .orElseThrow();
+        assertThat(resumable.remaining().get(0).getAmount()).isEqualTo(amount);
+    }
+
+    @Test
+    void testChunkIsRetriedAndItsBatchFailedWhenItCannotBeWritten() throws Exception {
+        BulkProcessingProperties properties = new BulkProcessingProperties();
+        properties.getPersistence().setWriteRetryBackoff(Duration.ofMillis(1));
+        EntityManager entityManager = mock(EntityManager.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        BatchRepository batches = mock(BatchRepository.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        doThrow(new PersistenceException("connection reset")).when(entityManager).persist(any(TransactionOutcome.class));
+        BatchPersistenceService service = new BatchPersistenceService(entityManager, transactionTemplate, batches,
+                mock(BatchTransactionRepository.class), mock(TransactionOutcomeRepository.class), properties, new SimpleMeterRegistry());
+
+        service.recordOutcome(7L, 0, new TransactionServiceResult("tx-001", "SUCCESS", null));
+        service.finishBatch(7L, "COMPLETED");
+        service.shutdown();
+
+        verify(entityManager, times(3)).persist(any(TransactionOutcome.class));
+        verify(batches).markFinished(eq(7L), eq("FAILED"), any());
+        verify(batches, never()).markFinished(eq(7L), eq("COMPLETED"), any());
+    }
+
+    @Test
+    void testBatchesRunByThisInstanceAreNotResumedByIt() {
+        String jobId = UUID.randomUUID().toString();
+        batchPersistenceService.createBatch(jobId, buildRequest(), "user");
+
+        assertThat(batchPersistenceService.findResumableBatches())
+                .noneMatch(batch -> batch.jobId().equals(jobId));
+    }
+
+    @Test
+    void testBatchHeldByAnotherInstanceIsResumedOnlyOnceItsLeaseExpires() {
+        String jobId = UUID.randomUUID().toString();
+        long batchPk = batchPersistenceService.createBatch(jobId, buildRequest(), "user");
+        Batch batch = batchRepository.findById(batchPk).orElseThrow();
+        batch.setInstanceId("other-instance");
+        batch.setLeaseExpiresAt(Instant.now().plus(Duration.ofMinutes(1)));
+        batchRepository.save(batch);
+
+        assertThat(restarted().findResumableBatches()).noneMatch(resumable -> resumable.jobId().equals(jobId));
+
+        batch.setLeaseExpiresAt(Instant.now().minus(Duration.ofSeconds(1)));
+        batchRepository.save(batch);
+
+        assertThat(restarted.findResumableBatches()).anyMatch(resumable -> resumable.jobId().equals(jobId));
+        assertThat(batchRepository.findById(batchPk).orElseThrow().getInstanceId())
+                .isEqualTo(properties.getPersistence().getInstanceId());
+    }
+
+    @Test
+    void testReasonIsCutToItsColumn() throws InterruptedException {
+        long batchPk = batchPersistenceService.createBatch(UUID.randomUUID().toString(), buildRequest(), "user");
+
+        batchPersistenceService.recordOutcome(batchPk, 0,
+                new TransactionServiceResult("tx-001", "FAILED", "x".repeat(TransactionOutcome.REASON_LENGTH + 1)));
+        awaitTrue(() -> transactionOutcomeRepository.findByBatchPkOrderByPosition(batchPk).size() == 1);
+
+        assertThat(transactionOutcomeRepository.findByBatchPkOrderByPosition(batchPk).get(0).getReason())
+                .hasSize(TransactionOutcome.REASON_LENGTH);
+    }
+
+    @Test
+    void testOnlyTheBatchWhoseWritesKeepFailingIsFailed() throws Exception {
+        BulkProcessingProperties properties = new BulkProcessingProperties();
+        properties.getPersistence().setWriteRetryBackoff(Duration.ofMillis(1));
+        properties.getPersistence().setFlushInterval(Duration.ofSeconds(1));
+        EntityManager entityManager = mock(EntityManager.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        BatchRepository batches = mock(BatchRepository.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        doThrow(new PersistenceException("value too long")).when(entityManager)
+                .persist(argThat(entity -> entity instanceof TransactionOutcome outcome && outcome.getBatchPk() == 7L));
+        BatchPersistenceService service = new BatchPersistenceService(entityManager, transactionTemplate, batches,
+                mock(BatchTransactionRepository.class), mock(TransactionOutcomeRepository.class), properties, new SimpleMeterRegistry());
+
+        service.recordOutcome(7L, 0, new TransactionServiceResult("tx-001", "SUCCESS", null));
+        service.recordOutcome(8L, 0, new TransactionServiceResult("tx-002", "SUCCESS", null));
+        service.finishBatch(7L, "COMPLETED");
+        service.finishBatch(8L, "COMPLETED");
+        service.shutdown();
+
+        verify(batches).markFinished(eq(7L), eq("FAILED"), any());
+        verify(batches, never()).markFinished(eq(7L), eq("COMPLETED"), any());
+        verify(batches).markFinished(eq(8L), eq("COMPLETED"), any());
+        verify(batches, never()).markFinished(eq(8L), eq("FAILED"), any());
+    }
+}
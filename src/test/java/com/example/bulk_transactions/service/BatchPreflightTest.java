@@ -0,0 +1,97 @@
+package com.example.bulk_transactions.service;
+
+import com.example.bulk_transactions.config.BulkProcessingProperties;
+import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchPreflightTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BatchPreflight preflight = new BatchPreflight(new BulkProcessingProperties.Preflight(),
+            new BatchPreflight.Metrics(meterRegistry));
+
+    private static TransactionServiceRequest transaction(String transactionId, String amount) {
+        return new TransactionServiceRequest(transactionId, "acct1", "acct2", new BigDecimal(amount));
+    }
+
+    @Test
+    void testLaterOccurrencesOfAnIdAreDuplicates() {
+        assertThat(preflight.check(transaction("tx-001", "10"))).isNull();
+        assertThat(preflight.check(transaction("tx-002", "10"))).isNull();
+        assertThat(preflight.check(transaction("tx-001", "10"))).isEqualTo("Duplicate transactionId in batch");
+        assertThat(meterRegistry.get("transactions.preflight.rejected").tag("reason", "duplicate").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void testIdsSharingAFingerprintAreNotDuplicates() {
+        BatchPreflight colliding = new BatchPreflight(new BulkProcessingProperties.Preflight(),
+                new BatchPreflight.Metrics(meterRegistry), id -> 42L);
+
+        for (int i = 0; i < 2_000; i++) {
+            assertThat(colliding.check(transaction("tx-" + i, "1"))).isNull();
+        }
+        assertThat(colliding.check(transaction("tx-1999", "1"))).isEqualTo("Duplicate transactionId in batch");
+        assertThat(colliding.check(transaction("tx-0", "1"))).isEqualTo("Duplicate transactionId in batch");
+    }
+
+    @Test
+    void testTableGrowsWithoutLosingIds() {
+        for (int i = 0; i < 100_000; i++) {
+            assertThat(preflight.check(transaction("tx-" + i, "1"))).isNull();
+        }
+        for (int i = 0; i < 100_000; i += 997) {
+            assertThat(preflight.check(transaction("tx-" + i, "1"))).isNotNull();
+        }
+    }
+
+    @Test
+    void testTransferToTheSourceAccountIsRejected() {
+        TransactionServiceRequest transaction = new TransactionServiceRequest("tx-001", "acct1", "acct1", BigDecimal.TEN);
+
+        assertThat(preflight.check(transaction)).isEqualTo("Source and destination accounts must differ");
+    }
+
+    @Test
+    void testAmountsAreNotCheckedUntilALimitIsSet() {
+        assertThat(preflight.check(transaction("tx-001", "10.005"))).isNull();
+        assertThat(preflight.check(transaction("tx-002", "1E+20"))).isNull();
+    }
+
+    @Test
+    void testAmountsMustFitTheServiceDecimal() {
+        BulkProcessingProperties.Preflight properties = new BulkProcessingProperties.Preflight();
+        properties.setMaxScale(2);
+        properties.setMaxPrecision(19);
+        BatchPreflight preflight = new BatchPreflight(properties, new BatchPreflight.Metrics(meterRegistry));
+
+        assertThat(preflight.check(transaction("tx-001", "10.500"))).isNull();
+        assertThat(preflight.check(transaction("tx-002", "99999999999999999.99"))).isNull();
+        assertThat(preflight.check(transaction("tx-003", "10.005"))).isEqualTo("Amount has more than 2 decimal places");
+        assertThat(preflight.check(transaction("tx-004", "100000000000000000"))).isEqualTo("Amount exceeds 17 integer digits");
+        assertThat(preflight.check(transaction("tx-005", "1E+20"))).isEqualTo("Amount exceeds 17 integer digits");
+    }
+
+    @Test
+    void testFingerprintIsNeverTheEmptySlot() {
+        assertThat(BatchPreflight.fingerprint("")).isNotZero();
+        assertThat(BatchPreflight.fingerprint("tx-1")).isNotEqualTo(BatchPreflight.fingerprint("tx-2"));
+    }
+
+    @Test
+    void testResumedBatchSeesOnlyTheIdsStoredBeforeEachGap() {
+        preflight.resumeFrom(Arrays.asList(
+                new TransactionServiceResult("tx-001", "SUCCESS", null), null,
+                new TransactionServiceResult("tx-003", "SUCCESS", null), null));
+
+        assertThat(preflight.check(transaction("tx-003", "10"))).isNull();
+        assertThat(preflight.check(transaction("tx-001", "10"))).isEqualTo("Duplicate transactionId in batch");
+    }
+}
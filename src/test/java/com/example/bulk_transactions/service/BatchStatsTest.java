@@ -0,0 +1,69 @@
+package com.example.bulk_transactions.service;
+
+import com.example.bulk_transactions.config.BulkProcessingProperties;
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class BatchStatsTest {
+
+    private static final TransactionServiceResult SUCCESS = new TransactionServiceResult("tx", "SUCCESS", null);
+    private static final TransactionServiceResult FAILED = new TransactionServiceResult("tx", "FAILED", "declined");
+
+    @Test
+    void testCountsOutcomes() {
+        BatchStats stats = new BatchStats(new BulkProcessingProperties.FailurePolicy());
+
+        stats.record(SUCCESS, 1_000);
+        stats.record(SUCCESS, 1_000);
+        stats.record(FAILED, 1_000);
+
+        assertThat(stats.getSucceeded()).isEqualTo(2);
+        assertThat(stats.getFailed()).isEqualTo(1);
+        assertThat(stats.getTotal()).isEqualTo(3);
+    }
+
+    @Test
+    void testFailFastNeedsAThreshold() {
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+        BulkProcessingProperties.FailurePolicy policy = new BulkProcessingProperties.FailurePolicy();
+        policy.setMode(BulkProcessingProperties.FailureMode.FAIL_FAST);
+
+        assertThat(validator.validate(policy)).extracting(ConstraintViolation::getMessage)
+                .containsExactly("FAIL_FAST needs max-failures or max-failure-rate");
+
+        policy.setMaxFailureRate(0.5);
+        assertThat(validator.validate(policy)).isEmpty();
+    }
+
+    @Test
+    void testPercentilesAreWithinBucketResolution() {
+        BatchStats stats = new BatchStats(new BulkProcessingProperties.FailurePolicy());
+        for (int millis = 1; millis <= 100; millis++) {
+            stats.record(SUCCESS, TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        assertThat(stats.latencyPercentileMillis(0.50)).isCloseTo(50, within(50 * 0.125));
+        assertThat(stats.latencyPercentileMillis(0.99)).isCloseTo(99, within(99 * 0.125));
+        assertThat(new BatchStats(new BulkProcessingProperties.FailurePolicy()).latencyPercentileMillis(0.99)).isZero();
+    }
+
+    @Test
+    void testBucketsCoverTheirValues() {
+        for (long micros : new long[]{0, 1, 7, 8, 15, 16, 17, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = BatchStats.bucket(micros);
+
+            assertThat(BatchStats.upperBoundMicros(bucket)).isGreaterThanOrEqualTo(micros);
+            if (bucket > 0) {
+                assertThat(BatchStats.upperBoundMicros(bucket - 1)).isLessThan(micros);
+            }
+        }
+    }
+}
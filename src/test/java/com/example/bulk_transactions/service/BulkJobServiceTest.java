@@ -0,0 +1,125 @@
+package com.example.bulk_transactions.service;
+
+import com.example.bulk_transactions.config.BulkProcessingProperties;
+import com.example.bulk_transactions.dto.BulkJobResultsPage;
+import com.example.bulk_transactions.dto.BulkJobStatusResponse;
+import com.example.bulk_transactions.dto.BulkTransactionRequest;
+import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import com.example.bulk_transactions.exception.ResourceNotFoundException;
+import com.example.bulk_transactions.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkJobServiceTest {
+
+    private BulkTransactionService bulkTransactionService;
+    private BulkProcessingProperties properties;
+    private BulkJobService bulkJobService;
+
+    @BeforeEach
+    void setUp() {
+        bulkTransactionService = mock(BulkTransactionService.class);
+        properties = new BulkProcessingProperties();
+        bulkJobService = new BulkJobService(bulkTransactionService, mock(BatchPersistenceService.class), properties, new SimpleMeterRegistry());
+    }
+
+    private BulkTransactionRequest buildRequest() {
+        TransactionServiceRequest tx1 = new TransactionServiceRequest("tx-001", "acct1", "acct2", BigDecimal.valueOf(100));
+        TransactionServiceRequest tx2 = new TransactionServiceRequest("tx-002", "acct1", "acct3", BigDecimal.valueOf(200));
+        TransactionServiceRequest tx3 = new TransactionServiceRequest("tx-003", "acct2", "acct3", BigDecimal.valueOf(300));
+        return new BulkTransactionRequest("batch-001", List.of(tx1, tx2, tx3));
+    }
+
+    @Test
+    void testJobProgressAndPagedResults() {
+        Sinks.Many<TransactionServiceResult> results = Sinks.many().unicast().onBackpressureBuffer();
+        when(bulkTransactionService.processTransactions(eq("batch-001"), any(), any())).thenReturn(results.asFlux());
+
+        BulkJobStatusResponse submitted = bulkJobService.submit(buildRequest(), "user");
+        assertThat(submitted.getState()).isEqualTo("RUNNING");
+        assertThat(submitted.getTotal()).isEqualTo(3);
+
+        results.tryEmitNext(new TransactionServiceResult("tx-001", "SUCCESS", null));
+        results.tryEmitNext(new TransactionServiceResult("tx-002", "FAILED", "declined"));
+
+        BulkJobStatusResponse running = bulkJobService.getStatus(submitted.getJobId(), "user");
+        assertThat(running.getCompleted()).isEqualTo(2);
+        assertThat(running.getSucceeded()).isEqualTo(1);
+        assertThat(running.getFailed()).isEqualTo(1);
+
+        BulkJobResultsPage partialPage = bulkJobService.getResults(submitted.getJobId(), "user", 0, 2);
+        assertThat(partialPage.getResults()).extracting("transactionId").containsExactly("tx-001", "tx-002");
+        assertThat(partialPage.isLast()).isFalse();
+
+        results.tryEmitNext(new TransactionServiceResult("tx-003", "SUCCESS", null));
+        results.tryEmitComplete();
+
+        assertThat(bulkJobService.getStatus(submitted.getJobId(), "user").getState()).isEqualTo("COMPLETED");
+        BulkJobResultsPage lastPage = bulkJobService.getResults(submitted.getJobId(), "user", 1, 2);
+        assertThat(lastPage.getResults()).extracting("transactionId").containsExactly("tx-003");
+        assertThat(lastPage.isLast()).isTrue();
+    }
+
+    @Test
+    void testJobIsOnlyVisibleToOwner() {
+        when(bulkTransactionService.processTransactions(eq("batch-001"), any(), any())).thenReturn(Flux.empty());
+
+        BulkJobStatusResponse submitted = bulkJobService.submit(buildRequest(), "user");
+
+        assertThatThrownBy(() -> bulkJobService.getStatus(submitted.getJobId(), "someone-else"))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void testActiveJobLimit() {
+        properties.getJobs().setMaxActiveJobs(1);
+        bulkJobService = new BulkJobService(bulkTransactionService, mock(BatchPersistenceService.class), properties, new SimpleMeterRegistry());
+        when(bulkTransactionService.processTransactions(eq("batch-001"), any(), any())).thenReturn(Flux.never());
+
+        bulkJobService.submit(buildRequest(), "user");
+
+        assertThatThrownBy(() -> bulkJobService.submit(buildRequest(), "user"))
+                .isInstanceOf(TooManyRequestsException.class);
+    }
+
+    @Test
+    void testResumedJobFillsTheGapsBetweenStoredOutcomes() {
+        BatchPersistenceService batchPersistenceService = mock(BatchPersistenceService.class);
+        bulkJobService = new BulkJobService(bulkTransactionService, batchPersistenceService, properties, new SimpleMeterRegistry());
+        List<TransactionServiceResult> stored = Arrays.asList(
+                new TransactionServiceResult("tx-001", "SUCCESS", null), null,
+                new TransactionServiceResult("tx-003", "FAILED", "declined"));
+        TransactionServiceRequest tx2 = buildRequest().getTransactions().get(1);
+        when(batchPersistenceService.isEnabled()).thenReturn(true);
+        when(batchPersistenceService.findResumableBatches()).thenReturn(List.of(
+                new BatchPersistenceService.ResumableBatch(7L, "job-001", "batch-001", "user", 3, stored, List.of(tx2))));
+        when(bulkTransactionService.processTransactions(eq("batch-001"), any(), any()))
+                .thenReturn(Flux.just(new TransactionServiceResult("tx-002", "SUCCESS", null)));
+
+        bulkJobService.resumeUnfinishedJobs();
+
+        assertThat(bulkJobService.getStatus("job-001", "user").getState()).isEqualTo("COMPLETED");
+        assertThat(bulkJobService.getResults("job-001", "user", 0, 10).getResults()).extracting("transactionId")
+                .containsExactly("tx-001", "tx-002", "tx-003");
+        verify(batchPersistenceService).recordOutcome(eq(7L), eq(1), any());
+        verify(batchPersistenceService, never()).recordOutcome(eq(7L), eq(0), any());
+        verify(batchPersistenceService, never()).recordOutcome(eq(7L), eq(2), any());
+    }
+}
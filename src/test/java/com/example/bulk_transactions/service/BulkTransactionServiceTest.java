@@ -1,17 +1,29 @@
 package com.example.bulk_transactions.service;
 
+import com.example.bulk_transactions.client.RetryBudget;
 import com.example.bulk_transactions.client.TransactionServiceClient;
+import com.example.bulk_transactions.config.BulkProcessingProperties;
 import com.example.bulk_transactions.dto.BulkTransactionRequest;
 import com.example.bulk_transactions.dto.BulkTransactionResponse;
 import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
 import com.example.bulk_transactions.exception.TransactionServiceException;
+import com.example.bulk_transactions.repository.ProcessedTransactionRepository;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -20,13 +32,20 @@ class BulkTransactionServiceTest {
 
     private TransactionServiceClient transactionServiceClient;
     private SimpleMeterRegistry meterRegistry;
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
     private BulkTransactionService bulkTransactionService;
 
     @BeforeEach
     void setUp() {
         transactionServiceClient = Mockito.mock(TransactionServiceClient.class);
         meterRegistry = new SimpleMeterRegistry();
-        bulkTransactionService = new BulkTransactionService(transactionServiceClient, meterRegistry);
+        bulkTransactionService = buildService(new BulkProcessingProperties());
+    }
+
+    private BulkTransactionService buildService(BulkProcessingProperties properties) {
+        IdempotencyService idempotencyService = new IdempotencyService(properties, mock(ProcessedTransactionRepository.class), meterRegistry);
+        return new BulkTransactionService(transactionServiceClient, meterRegistry, properties, validator, idempotencyService,
+                new TenantScheduler(properties, meterRegistry));
     }
 
     private BulkTransactionRequest buildRequest() {
@@ -39,29 +58,84 @@ class BulkTransactionServiceTest {
     void testAllTransactionsSuccess() {
         BulkTransactionRequest request = buildRequest();
 
-        doNothing().when(transactionServiceClient).processTransaction(any(TransactionServiceRequest.class));
+        when(transactionServiceClient.processTransaction(any(TransactionServiceRequest.class), anyString())).thenReturn(Mono.empty());
 
-        BulkTransactionResponse response = bulkTransactionService.processBulkTransactions(request);
+        BulkTransactionResponse response = bulkTransactionService.processBulkTransactions(request).block();
 
         assertThat(response).isNotNull();
         assertThat(response.getResults()).hasSize(2);
         assertThat(response.getResults().stream().allMatch(r -> r.getStatus().equals("SUCCESS"))).isTrue();
 
-        verify(transactionServiceClient, times(2)).processTransaction(any(TransactionServiceRequest.class));
+        verify(transactionServiceClient, times(2)).processTransaction(any(TransactionServiceRequest.class), anyString());
         assertThat(meterRegistry.counter("transactions.success.count").count()).isEqualTo(2);
         assertThat(meterRegistry.counter("transactions.failure.count").count()).isEqualTo(0);
     }
 
+    @Test
+    void testBatchDurationAndSizeAreRecorded() {
+        when(transactionServiceClient.processTransaction(any(TransactionServiceRequest.class), anyString())).thenReturn(Mono.empty());
+
+        bulkTransactionService.processBulkTransactions(buildRequest()).block();
+
+        assertThat(meterRegistry.get("bulk.batch.duration").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("bulk.batch.size").summary().totalAmount()).isEqualTo(2);
+        assertThat(meterRegistry.get("bulk.batch.retry.amplification").summary().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testRetryBudgetReachesTheClientThroughTheScheduler() {
+        BulkProcessingProperties properties = new BulkProcessingProperties();
+        properties.setExecutionMode(BulkProcessingProperties.ExecutionMode.VIRTUAL_THREADS);
+        BulkTransactionService virtualThreadService = buildService(properties);
+        List<Object> budgets = new CopyOnWriteArrayList<>();
+        when(transactionServiceClient.processTransaction(any(TransactionServiceRequest.class), anyString()))
+                .thenReturn(Mono.deferContextual(context -> {
+                    budgets.add(context.getOrDefault(RetryBudget.CONTEXT_KEY, "none"));
+                    return Mono.empty();
+                }));
+
+        bulkTransactionService.processBulkTransactions(buildRequest()).block();
+        virtualThreadService.processBulkTransactions(buildRequest()).block();
+        virtualThreadService.shutdown();
+
+        assertThat(budgets).hasSize(4).allMatch(RetryBudget.class::isInstance);
+        assertThat(budgets.get(0)).isSameAs(budgets.get(1));
+        assertThat(budgets.get(2)).isSameAs(budgets.get(3)).isNotSameAs(budgets.get(0));
+    }
+
+    @Test
+    void testOrderedTransactionsKeepTheCallerAndRetryBudget() {
+        BulkProcessingProperties properties = new BulkProcessingProperties();
+        properties.getOrdering().setEnabled(true);
+        BulkTransactionService orderedService = buildService(properties);
+        List<Object> tenants = new CopyOnWriteArrayList<>();
+        List<Object> budgets = new CopyOnWriteArrayList<>();
+        when(transactionServiceClient.processTransaction(any(TransactionServiceRequest.class), anyString()))
+                .thenReturn(Mono.deferContextual(context -> {
+                    tenants.add(context.getOrDefault(TenantScheduler.TENANT_KEY, "none"));
+                    budgets.add(context.getOrDefault(RetryBudget.CONTEXT_KEY, "none"));
+                    return Mono.empty();
+                }));
+
+        orderedService.processBulkTransactions(buildRequest())
+                .contextWrite(TenantScheduler.withTenant("alice"))
+                .block();
+
+        assertThat(tenants).containsExactly("alice", "alice");
+        assertThat(budgets).hasSize(2).allMatch(RetryBudget.class::isInstance);
+        assertThat(meterRegistry.find("bulk.scheduler.wait").tag("tenant", "alice").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.find("bulk.scheduler.wait").tag("tenant", TenantScheduler.ANONYMOUS).timer()).isNull();
+    }
+
     @Test
     void testPartialFailure() {
         BulkTransactionRequest request = buildRequest();
 
-        doNothing().when(transactionServiceClient).processTransaction(request.getTransactions().get(0));
-        doThrow(new TransactionServiceException("Transaction service unavailable"))
-                .when(transactionServiceClient)
-                .processTransaction(request.getTransactions().get(1));
+        when(transactionServiceClient.processTransaction(eq(request.getTransactions().get(0)), anyString())).thenReturn(Mono.empty());
+        when(transactionServiceClient.processTransaction(eq(request.getTransactions().get(1)), anyString()))
+                .thenReturn(Mono.error(new TransactionServiceException("Transaction service unavailable")));
 
-        BulkTransactionResponse response = bulkTransactionService.processBulkTransactions(request);
+        BulkTransactionResponse response = bulkTransactionService.processBulkTransactions(request).block();
 
         assertThat(response.getResults()).hasSize(2);
         assertThat(response.getResults().stream().anyMatch(r -> r.getStatus().equals("FAILED"))).isTrue();
@@ -74,16 +148,266 @@ class BulkTransactionServiceTest {
     void testAllTransactionsFail() {
         BulkTransactionRequest request = buildRequest();
 
-        doThrow(new TransactionServiceException("Transaction service unavailable"))
-                .when(transactionServiceClient)
-                .processTransaction(any(TransactionServiceRequest.class));
+        when(transactionServiceClient.processTransaction(any(TransactionServiceRequest.class), anyString()))
+                .thenReturn(Mono.error(new TransactionServiceException("Transaction service unavailable")));
 
-        BulkTransactionResponse response = bulkTransactionService.processBulkTransactions(request);
+        BulkTransactionResponse response = bulkTransactionService.processBulkTransactions(request).block();
 
         assertThat(response.getResults().stream().allMatch(r -> r.getStatus().equals("FAILED"))).isTrue();
-        verify(transactionServiceClient, times(2)).processTransaction(any(TransactionServiceRequest.class));
+        verify(transactionServiceClient, times(2)).processTransaction(any(TransactionServiceRequest.class), anyString());
 
         assertThat(meterRegistry.counter("transactions.success.count").count()).isEqualTo(0);
         assertThat(meterRegistry.counter("transactions.failure.count").count()).isEqualTo(2);
     }
+
+    @Test
+    void testPreflightRejectsWithoutDownstreamCalls() {
+        BulkProcessingProperties properties = new BulkProcessingProperties();
+        properties.getPreflight().setMaxScale(2);
+        properties.getPreflight().setMaxPrecision(19);
+        bulkTransactionService = buildService(properties);
+        TransactionServiceRequest valid = new TransactionServiceRequest("tx-001", "acct1", "acct2", BigDecimal.TEN);
+        BulkTransactionRequest request = new BulkTransactionRequest("batch-001", List.of(
+                valid,
+                new TransactionServiceRequest("tx-001", "acct1", "acct3", BigDecimal.ONE),
+                new TransactionServiceRequest("tx-002", "acct1", "acct1", BigDecimal.ONE),
+                new TransactionServiceRequest("tx-003", "acct1", "acct2", new BigDecimal("0.001"))));
+        when(transactionServiceClient.processTransaction(any(TransactionServiceRequest.class), anyString())).thenReturn(Mono.empty());
+
+        BulkTransactionResponse response = bulkTransactionService.processBulkTransactions(request).block();
+
+        assertThat(response.getResults()).extracting("status").containsExactly("SUCCESS", "FAILED", "FAILED", "FAILED");
+        assertThat(response.getResults()).extracting("reason").containsExactly(null,
+                "Duplicate transactionId in batch", "Source and destination accounts must differ",
+                "Amount has more than 2 decimal places");
+        verify(transactionServiceClient, times(1)).processTransaction(any(TransactionServiceRequest.class), anyString());
+        verify(transactionServiceClient).processTransaction(eq(valid), anyString());
+    }
+
+    @Test
+    void testRepostedBatchSkipsCompletedTransactions() {
+        BulkTransactionRequest request = buildRequest();
+
+        when(transactionServiceClient.processTransaction(eq(request.getTransactions().get(0)), anyString())).thenReturn(Mono.empty());
+        when(transactionServiceClient.processTransaction(eq(request.getTransactions().get(1)), anyString()))
+                .thenReturn(Mono.error(new TransactionServiceException("Transaction service unavailable")));
+
+        bulkTransactionService.processBulkTransactions(request).block();
+        BulkTransactionResponse reposted = bulkTransactionService.processBulkTransactions(request).block();
+
+        assertThat(reposted.getResults()).extracting("status").containsExactly("SUCCESS", "FAILED");
+        verify(transactionServiceClient, times(1)).processTransaction(eq(request.getTransactions().get(0)), anyString());
+        verify(transactionServiceClient, times(2)).processTransaction(eq(request.getTransactions().get(1)), anyString());
+        assertThat(meterRegistry.counter("transactions.duplicate.count").count()).isEqualTo(1);
+    }
+
+    @Test
+    void testRepostWithChangedAmountFailsInsteadOfReplaying() {
+        BulkTransactionRequest request = buildRequest();
+        when(transactionServiceClient.processTransaction(any(TransactionServiceRequest.class), anyString())).thenReturn(Mono.empty());
+        bulkTransactionService.processBulkTransactions(request).block();
+
+        BulkTransactionRequest corrected = new BulkTransactionRequest("batch-001", List.of(
+                new TransactionServiceRequest("tx-001", "acct1", "acct2", BigDecimal.valueOf(150))));
+        BulkTransactionResponse response = bulkTransactionService.processBulkTransactions(corrected).block();
+
+        assertThat(response.getResults()).extracting("status").containsExactly("FAILED");
+        assertThat(response.getResults().get(0).getReason()).contains("different transfer");
+        verify(transactionServiceClient, times(2)).processTransaction(any(TransactionServiceRequest.class), anyString());
+    }
+
+    @Test
+    void testResultsKeepSubmissionOrderWhenCallsOverlap() {
+        BulkTransactionRequest request = buildRequest();
+
+        when(transactionServiceClient.processTransaction(eq(request.getTransactions().get(0)), anyString()))
+                .thenReturn(Mono.delay(Duration.ofMillis(200)).then());
+        when(transactionServiceClient.processTransaction(eq(request.getTransactions().get(1)), anyString())).thenReturn(Mono.empty());
+
+        BulkTransactionResponse response = bulkTransactionService.processBulkTransactions(request).block();
+
+        assertThat(response.getResults()).extracting("transactionId").containsExactly("tx-001", "tx-002");
+        assertThat(response.getResults()).extracting("status").containsOnly("SUCCESS");
+    }
+
+    @Test
+    void testStreamEmitsResultsInCompletionOrder() {
+        BulkTransactionRequest request = buildRequest();
+
+        when(transactionServiceClient.processTransaction(eq(request.getTransactions().get(0)), anyString()))
+                .thenReturn(Mono.delay(Duration.ofMillis(200)).then());
+        when(transactionServiceClient.processTransaction(eq(request.getTransactions().get(1)), anyString())).thenReturn(Mono.empty());
+
+        List<TransactionServiceResult> results = bulkTransactionService
+                .streamTransactions(request.getBatchId(), Flux.fromIterable(request.getTransactions()))
+                .collectList()
+                .block();
+
+        assertThat(results).extracting("transactionId").containsExactly("tx-002", "tx-001");
+    }
+
+    @Test
+    void testStreamedTransactionsAreValidatedIndividually() {
+        TransactionServiceRequest valid = new TransactionServiceRequest("tx-001", "acct1", "acct2", BigDecimal.valueOf(100));
+        TransactionServiceRequest invalid = new TransactionServiceRequest("tx-002", "", "acct3", BigDecimal.ZERO);
+
+        when(transactionServiceClient.processTransaction(eq(valid), anyString())).thenReturn(Mono.empty());
+
+        List<TransactionServiceResult> results = bulkTransactionService
+                .streamUnvalidatedTransactions("batch-001", Flux.just(valid, invalid))
+                .collectList()
+                .block();
+
+        assertThat(results).hasSize(2);
+        assertThat(results).filteredOn(r -> r.getTransactionId().equals("tx-002")).singleElement()
+                .satisfies(r -> {
+                    assertThat(r.getStatus()).isEqualTo("FAILED");
+                    assertThat(r.getReason()).contains("amount", "fromAccount");
+                });
+        verify(transactionServiceClient, never()).processTransaction(eq(invalid), anyString());
+    }
+
+    @Test
+    void testVirtualThreadExecutionMode() {
+        BulkProcessingProperties properties = new BulkProcessingProperties();
+        properties.setExecutionMode(BulkProcessingProperties.ExecutionMode.VIRTUAL_THREADS);
+        BulkTransactionService virtualThreadService = buildService(properties);
+        BulkTransactionRequest request = buildRequest();
+
+        when(transactionServiceClient.processTransaction(eq(request.getTransactions().get(0)), anyString()))
+                .thenReturn(Mono.fromRunnable(() -> assertThat(Thread.currentThread().isVirtual()).isTrue()));
+        when(transactionServiceClient.processTransaction(eq(request.getTransactions().get(1)), anyString()))
+                .thenReturn(Mono.error(new TransactionServiceException("Transaction service unavailable")));
+
+        BulkTransactionResponse response = virtualThreadService.processBulkTransactions(request).block();
+        virtualThreadService.shutdown();
+
+        assertThat(response.getResults()).extracting("status").containsExactly("SUCCESS", "FAILED");
+    }
+
+    @Test
+    void testFailFastSkipsTransactionsAfterTooManyFailures() {
+        BulkProcessingProperties properties = new BulkProcessingProperties();
+        properties.setConcurrency(1);
+        properties.getFailurePolicy().setMode(BulkProcessingProperties.FailureMode.FAIL_FAST);
+        properties.getFailurePolicy().setMaxFailures(2);
+        BulkTransactionService failFastService = buildService(properties);
+
+        when(transactionServiceClient.processTransaction(any(TransactionServiceRequest.class), anyString()))
+                .thenReturn(Mono.error(new TransactionServiceException("Transaction service unavailable")));
+
+        List<TransactionServiceResult> results = failFastService.processTransactions("batch-001", Flux.range(0, 10)
+                        .map(i -> new TransactionServiceRequest("tx-" + i, "acct1", "acct2", BigDecimal.TEN)))
+                .collectList()
+                .block();
+
+        assertThat(results).extracting("status").containsExactly(
+                "FAILED", "FAILED", "SKIPPED", "SKIPPED", "SKIPPED", "SKIPPED", "SKIPPED", "SKIPPED", "SKIPPED", "SKIPPED");
+        assertThat(results.get(9).getReason()).contains("Batch aborted");
+        verify(transactionServiceClient, times(2)).processTransaction(any(TransactionServiceRequest.class), anyString());
+        assertThat(meterRegistry.counter("transactions.skipped.count").count()).isEqualTo(8);
+    }
+
+    @Test
+    void testAbortedBatchSkipsTransactionsThePreflightWouldReject() {
+        BulkProcessingProperties properties = new BulkProcessingProperties();
+        properties.setConcurrency(1);
+        properties.getFailurePolicy().setMode(BulkProcessingProperties.FailureMode.FAIL_FAST);
+        properties.getFailurePolicy().setMaxFailures(2);
+        BulkTransactionService failFastService = buildService(properties);
+
+        when(transactionServiceClient.processTransaction(any(TransactionServiceRequest.class), anyString()))
+                .thenReturn(Mono.error(new TransactionServiceException("Transaction service unavailable")));
+
+        List<TransactionServiceResult> results = failFastService.processTransactions("batch-001", Flux.just(
+                        new TransactionServiceRequest("tx-0", "acct1", "acct2", BigDecimal.TEN),
+                        new TransactionServiceRequest("tx-1", "acct1", "acct2", BigDecimal.TEN),
+                        new TransactionServiceRequest("tx-0", "acct1", "acct2", BigDecimal.TEN),
+                        new TransactionServiceRequest("tx-2", "acct1", "acct1", BigDecimal.TEN)))
+                .collectList()
+                .block();
+
+        assertThat(results).extracting("status").containsExactly("FAILED", "FAILED", "SKIPPED", "SKIPPED");
+    }
+
+    @Test
+    void testResumedBatchCatchesDuplicatesOfStoredOutcomes() {
+        when(transactionServiceClient.processTransaction(any(TransactionServiceRequest.class), anyString())).thenReturn(Mono.empty());
+        List<TransactionServiceResult> stored = Arrays.asList(
+                new TransactionServiceResult("tx-001", "SUCCESS", null), null, null);
+
+        List<TransactionServiceResult> results = bulkTransactionService.processTransactions("batch-001", stored, Flux.just(
+                        new TransactionServiceRequest("tx-002", "acct1", "acct2", BigDecimal.TEN),
+                        new TransactionServiceRequest("tx-001", "acct1", "acct3", BigDecimal.ONE)))
+                .collectList()
+                .block();
+
+        assertThat(results).extracting("status").containsExactly("SUCCESS", "FAILED");
+        assertThat(results.get(1).getReason()).isEqualTo("Duplicate transactionId in batch");
+        verify(transactionServiceClient, times(1)).processTransaction(any(TransactionServiceRequest.class), anyString());
+    }
+
+    @Test
+    void testFailureRateNeedsMinimumSamples() {
+        BulkProcessingProperties properties = new BulkProcessingProperties();
+        properties.setConcurrency(1);
+        properties.getFailurePolicy().setMode(BulkProcessingProperties.FailureMode.FAIL_FAST);
+        properties.getFailurePolicy().setMaxFailureRate(0.5);
+        properties.getFailurePolicy().setMinSamples(4);
+        BulkTransactionService failFastService = buildService(properties);
+
+        when(transactionServiceClient.processTransaction(any(TransactionServiceRequest.class), anyString()))
+                .thenReturn(Mono.error(new TransactionServiceException("Transaction service unavailable")));
+
+        List<TransactionServiceResult> results = failFastService.processTransactions("batch-001", Flux.range(0, 6)
+                        .map(i -> new TransactionServiceRequest("tx-" + i, "acct1", "acct2", BigDecimal.TEN)))
+                .collectList()
+                .block();
+
+        assertThat(results).extracting("status").containsExactly("FAILED", "FAILED", "FAILED", "FAILED", "SKIPPED", "SKIPPED");
+    }
+
+    @Test
+    void testCancellingBatchCancelsInFlightCalls() {
+        AtomicInteger cancelled = new AtomicInteger();
+        when(transactionServiceClient.processTransaction(any(TransactionServiceRequest.class), anyString()))
+                .thenReturn(Mono.<Void>never().doOnCancel(cancelled::incrementAndGet));
+
+        bulkTransactionService.streamTransactions("batch-001", Flux.fromIterable(buildRequest().getTransactions()))
+                .subscribe()
+                .dispose();
+
+        assertThat(cancelled).hasValue(2);
+        assertThat(meterRegistry.get("bulk.scheduler.in.flight").gauge().value()).isZero();
+    }
+
+    @Test
+    void testOrderingSendsOneTransactionPerAccountAtATime() {
+        BulkProcessingProperties properties = new BulkProcessingProperties();
+        properties.getOrdering().setEnabled(true);
+        BulkTransactionService orderedService = buildService(properties);
+        AtomicInteger acct1InFlight = new AtomicInteger();
+        AtomicInteger maxAcct1InFlight = new AtomicInteger();
+
+        when(transactionServiceClient.processTransaction(any(TransactionServiceRequest.class), anyString())).thenAnswer(invocation -> {
+            TransactionServiceRequest transaction = invocation.getArgument(0);
+            if (!transaction.getFromAccount().equals("acct1")) {
+                return Mono.delay(Duration.ofMillis(5)).then();
+            }
+            return Mono.defer(() -> {
+                maxAcct1InFlight.accumulateAndGet(acct1InFlight.incrementAndGet(), Math::max);
+                return Mono.delay(Duration.ofMillis(5)).doOnNext(tick -> acct1InFlight.decrementAndGet()).then();
+            });
+        });
+
+        List<String> completed = orderedService.streamTransactions("batch-001", Flux.range(0, 20)
+                        .map(i -> new TransactionServiceRequest("tx-" + i, i % 2 == 0 ? "acct1" : "acct" + i, "acct0", BigDecimal.TEN)))
+                .filter(result -> Integer.parseInt(result.getTransactionId().substring(3)) % 2 == 0)
+                .map(TransactionServiceResult::getTransactionId)
+                .collectList()
+                .block();
+
+        assertThat(maxAcct1InFlight).hasValue(1);
+        assertThat(completed).containsExactly("tx-0", "tx-2", "tx-4", "tx-6", "tx-8", "tx-10", "tx-12", "tx-14", "tx-16", "tx-18");
+    }
 }
@@ -0,0 +1,96 @@
+package com.example.bulk_transactions.service;
+
+import com.example.bulk_transactions.config.BulkProcessingProperties;
+import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
+import com.example.bulk_transactions.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvTransactionReaderTest {
+
+    private final BulkProcessingProperties properties = new BulkProcessingProperties();
+    private final CsvTransactionReader reader = new CsvTransactionReader(properties);
+
+    private static InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testReadsColumnsByHeaderName() throws Exception {
+        // starts with a byte order mark, as spreadsheet exports often do
+        List<TransactionServiceRequest> transactions = reader.read(body("\uFEFF" + """
+                amount,memo,toAccount,fromAccount,transactionId\r
+                100.50,"rent, march",acct2,acct1,tx-001\r
+                \r
+                7,"say ""hi"" now",acct3,acct1,tx-002""")).collectList().block();
+
+        assertThat(transactions).extracting("transactionId").containsExactly("tx-001", "tx-002");
+        assertThat(transactions.get(0).getFromAccount()).isEqualTo("acct1");
+        assertThat(transactions.get(0).getToAccount()).isEqualTo("acct2");
+        assertThat(transactions.get(0).getAmount()).isEqualTo(new BigDecimal("100.50"));
+        assertThat(transactions.get(1).getAmount()).isEqualTo(new BigDecimal("7"));
+    }
+
+    @Test
+    void testQuotedFieldsAndOddAmounts() throws Exception {
+        List<TransactionServiceRequest> transactions = reader.read(body("""
+                transactionId,fromAccount,toAccount,amount
+                "tx-001","acct
+                1",acct2,12345678901234567890.12
+                tx-002,acct1,acct2,1E+3
+                tx-003,,acct2,
+                """)).collectList().block();
+
+        assertThat(transactions.get(0).getFromAccount()).isEqualTo("acct\n1");
+        assertThat(transactions.get(0).getAmount()).isEqualTo(new BigDecimal("12345678901234567890.12"));
+        assertThat(transactions.get(1).getAmount()).isEqualByComparingTo("1000");
+        assertThat(transactions.get(2).getFromAccount()).isEmpty();
+        assertThat(transactions.get(2).getAmount()).isNull();
+    }
+
+    @Test
+    void testLargeFileAcrossBufferAndChunkBoundaries() throws Exception {
+        properties.getCsvImport().setChunkSize(7);
+        String rows = IntStream.range(0, 20_000)
+                .mapToObj(i -> "tx-" + i + ",acct-" + i % 100 + ",\"dest " + i + "\"," + i + ".25")
+                .collect(Collectors.joining("\n", "transactionId,fromAccount,toAccount,amount\n", "\n"));
+
+        List<TransactionServiceRequest> transactions = reader.read(body(rows)).collectList().block();
+
+        assertThat(transactions).hasSize(20_000);
+        for (int i = 0; i < transactions.size(); i++) {
+            TransactionServiceRequest transaction = transactions.get(i);
+            assertThat(transaction.getTransactionId()).isEqualTo("tx-" + i);
+            assertThat(transaction.getToAccount()).isEqualTo("dest " + i);
+            assertThat(transaction.getAmount()).isEqualTo(BigDecimal.valueOf(i * 100L + 25, 2));
+        }
+    }
+
+    @Test
+    void testHeaderMustNameEveryColumn() {
+        assertThatThrownBy(() -> reader.read(body("transactionId,fromAccount,amount\ntx-001,acct1,1\n")))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("toAccount");
+    }
+
+    @Test
+    void testInvalidAmountFailsWithItsLine() throws Exception {
+        assertThatThrownBy(() -> reader.read(body("""
+                transactionId,fromAccount,toAccount,amount
+                tx-001,acct1,acct2,1
+                tx-002,acct1,acct2,ten
+                """)).collectList().block())
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Line 3: invalid amount 'ten'");
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.bulk_transactions.service;
+
+import com.example.bulk_transactions.config.BulkProcessingProperties;
+import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
+import com.example.bulk_transactions.dto.client.TransactionServiceResult;
+import com.example.bulk_transactions.exception.IdempotencyConflictException;
+import com.example.bulk_transactions.model.ProcessedTransaction;
+import com.example.bulk_transactions.repository.ProcessedTransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceTest {
+
+    private final TransactionServiceRequest transaction = new TransactionServiceRequest("tx-001", "acct1", "acct2", BigDecimal.TEN);
+
+    private BulkProcessingProperties properties;
+    private ProcessedTransactionRepository repository;
+    private IdempotencyService idempotencyService;
+    private AtomicInteger calls;
+
+    @BeforeEach
+    void setUp() {
+        properties = new BulkProcessingProperties();
+        repository = mock(ProcessedTransactionRepository.class);
+        idempotencyService = new IdempotencyService(properties, repository, new SimpleMeterRegistry());
+        calls = new AtomicInteger();
+    }
+
+    private Mono<TransactionServiceResult> call(String idempotencyKey) {
+        return Mono.delay(Duration.ofMillis(100))
+                .map(tick -> {
+                    calls.incrementAndGet();
+                    return new TransactionServiceResult("tx-001", "SUCCESS", null);
+                });
+    }
+
+    @Test
+    void testConcurrentDuplicatesShareOneCall() {
+        Mono<TransactionServiceResult> first = idempotencyService.deduplicate("batch-001", transaction, this::call);
+        Mono<TransactionServiceResult> second = idempotencyService.deduplicate("batch-001", transaction, this::call);
+
+        Mono.zip(first, second).block();
+
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void testSameTransactionInAnotherBatchIsSent() {
+        idempotencyService.deduplicate("batch-001", transaction, this::call).block();
+        idempotencyService.deduplicate("batch-002", transaction, this::call).block();
+
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void testSameBatchOfAnotherOwnerIsSent() {
+        idempotencyService.deduplicate("batch-001", transaction, this::call)
+                .contextWrite(TenantScheduler.withTenant("alice"))
+                .block();
+        idempotencyService.deduplicate("batch-001", transaction, this::call)
+                .contextWrite(TenantScheduler.withTenant("bob"))
+                .block();
+
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void testRepostWithTheSameAmountIsADuplicate() {
+        idempotencyService.deduplicate("batch-001", transaction, this::call).block();
+        TransactionServiceRequest samePayment = new TransactionServiceRequest("tx-001", "acct1", "acct2", new BigDecimal("10.00"));
+
+        TransactionServiceResult result = idempotencyService.deduplicate("batch-001", samePayment, this::call).block();
+
+        assertThat(result.getStatus()).isEqualTo("SUCCESS");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void testRepostWithDifferentDetailsIsRejected() {
+        idempotencyService.deduplicate("batch-001", transaction, this::call).block();
+        TransactionServiceRequest corrected = new TransactionServiceRequest("tx-001", "acct1", "acct2", new BigDecimal("12"));
+
+        assertThatThrownBy(() -> idempotencyService.deduplicate("batch-001", corrected, this::call).block())
+                .isInstanceOf(IdempotencyConflictException.class);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void testKeyPartsCannotRunTogether() {
+        assertThat(IdempotencyService.key("user", "a/b", "c")).isNotEqualTo(IdempotencyService.key("user", "a", "b/c"));
+        assertThat(IdempotencyService.key("user", "batch", "tx")).hasSize(43);
+    }
+
+    @Test
+    void testCallIsGivenTheKey() {
+        idempotencyService.deduplicate("batch-001", transaction, key -> {
+                    assertThat(key).isEqualTo(IdempotencyService.key(TenantScheduler.ANONYMOUS, "batch-001", "tx-001"));
+                    return call(key);
+                })
+                .block();
+
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void testPersistentStoreIsConsultedAndWritten() {
+        properties.getIdempotency().setPersistent(true);
+        String firstKey = IdempotencyService.key(TenantScheduler.ANONYMOUS, "batch-001", "tx-001");
+        ProcessedTransaction persisted = new ProcessedTransaction();
+        persisted.setIdempotencyKey(firstKey);
+        persisted.setTransactionId("tx-001");
+        persisted.setStatus("SUCCESS");
+        persisted.setRequestFingerprint(IdempotencyService.fingerprint(transaction));
+        persisted.setCompletedAt(Instant.now());
+        when(repository.findById(firstKey)).thenReturn(Optional.of(persisted));
+        when(repository.findById(IdempotencyService.key(TenantScheduler.ANONYMOUS, "batch-002", "tx-001"))).thenReturn(Optional.empty());
+
+        TransactionServiceResult duplicate = idempotencyService.deduplicate("batch-001", transaction, this::call).block();
+        idempotencyService.deduplicate("batch-002", transaction, this::call).block();
+
+        assertThat(duplicate.getStatus()).isEqualTo("SUCCESS");
+        assertThat(calls).hasValue(1);
+        verify(repository, times(1)).save(any(ProcessedTransaction.class));
+    }
+}
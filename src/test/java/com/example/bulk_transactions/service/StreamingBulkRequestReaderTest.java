@@ -0,0 +1,59 @@
+package com.example.bulk_transactions.service;
+
+import com.example.bulk_transactions.dto.client.TransactionServiceRequest;
+import com.example.bulk_transactions.exception.BadRequestException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamingBulkRequestReaderTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final StreamingBulkRequestReader reader = new StreamingBulkRequestReader(objectMapper);
+
+    private static InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testReadJsonDocumentIncrementally() throws Exception {
+        StreamingBulkRequestReader.StreamingBulkRequest request = reader.readJson(body("""
+                {"batchId": "batch-001", "transactions": [
+                  {"transactionId": "tx-001", "fromAccount": "acct1", "toAccount": "acct2", "amount": 100.50},
+                  {"transactionId": "tx-002", "fromAccount": "acct1", "toAccount": "acct3", "amount": 200}
+                ]}"""));
+
+        List<TransactionServiceRequest> transactions = request.transactions().collectList().block();
+
+        assertThat(request.batchId()).isEqualTo("batch-001");
+        assertThat(transactions).extracting("transactionId").containsExactly("tx-001", "tx-002");
+        assertThat(transactions.get(0).getAmount()).isEqualByComparingTo(new BigDecimal("100.50"));
+    }
+
+    @Test
+    void testBatchIdMustPrecedeTransactions() {
+        assertThatThrownBy(() -> reader.readJson(body("""
+                {"transactions": [], "batchId": "batch-001"}""")))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("batchId must precede transactions");
+    }
+
+    @Test
+    void testReadNdjson() throws Exception {
+        List<TransactionServiceRequest> transactions = reader.readNdjson(body("""
+                {"transactionId": "tx-001", "fromAccount": "acct1", "toAccount": "acct2", "amount": 1}
+                {"transactionId": "tx-002", "fromAccount": "acct1", "toAccount": "acct3", "amount": 2}
+                """)).collectList().block();
+
+        assertThat(transactions).extracting("transactionId").containsExactly("tx-001", "tx-002");
+    }
+}
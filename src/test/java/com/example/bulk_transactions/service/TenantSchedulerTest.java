@@ -0,0 +1,147 @@
+package com.example.bulk_transactions.service;
+
+import com.example.bulk_transactions.config.BulkProcessingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TenantSchedulerTest {
+
+    private BulkProcessingProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new BulkProcessingProperties();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private Disposable submit(TenantScheduler scheduler, String tenant, String batchId, Mono<?> call) {
+        return scheduler.schedule(batchId, call)
+                .contextWrite(TenantScheduler.withTenant(tenant))
+                .subscribe();
+    }
+
+    private static Mono<Void> recording(List<String> started, String label) {
+        return Mono.fromRunnable(() -> started.add(label));
+    }
+
+    @Test
+    void testPerTenantInFlightCapLeavesRoomForOthers() {
+        properties.getScheduling().setMaxInFlight(3);
+        properties.getScheduling().setMaxInFlightPerTenant(2);
+        TenantScheduler scheduler = new TenantScheduler(properties, meterRegistry);
+        AtomicInteger started = new AtomicInteger();
+        Mono<Void> neverCompletes = Mono.<Void>never().doOnSubscribe(s -> started.incrementAndGet());
+
+        for (int i = 0; i < 5; i++) {
+            submit(scheduler, "big", "batch-big", neverCompletes);
+        }
+        assertThat(started).hasValue(2);
+
+        submit(scheduler, "small", "batch-small", neverCompletes);
+        assertThat(started).hasValue(3);
+        assertThat(meterRegistry.get("bulk.scheduler.queue.depth").tag("tenant", "big").gauge().value()).isEqualTo(3);
+        assertThat(meterRegistry.get("bulk.scheduler.in.flight").tag("tenant", "small").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void testTenantsAreServedInTurnRatherThanInArrivalOrder() {
+        properties.getScheduling().setMaxInFlight(1);
+        TenantScheduler scheduler = new TenantScheduler(properties, meterRegistry);
+        Sinks.Empty<Void> gate = Sinks.empty();
+        List<String> started = new CopyOnWriteArrayList<>();
+
+        submit(scheduler, "big", "batch-big", gate.asMono());
+        for (int i = 0; i < 4; i++) {
+            submit(scheduler, "big", "batch-big", recording(started, "big"));
+        }
+        submit(scheduler, "small", "batch-small", recording(started, "small"));
+        submit(scheduler, "small", "batch-small", recording(started, "small"));
+        gate.tryEmitEmpty();
+
+        assertThat(started).hasSize(6);
+        assertThat(started.subList(0, 4)).containsOnly("big", "small").filteredOn("small"::equals).hasSize(2);
+        assertThat(meterRegistry.get("bulk.scheduler.wait").tag("tenant", "small").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void testBatchesOfOneTenantAreInterleaved() {
+        properties.getScheduling().setMaxInFlight(1);
+        TenantScheduler scheduler = new TenantScheduler(properties, meterRegistry);
+        Sinks.Empty<Void> gate = Sinks.empty();
+        List<String> started = new CopyOnWriteArrayList<>();
+
+        submit(scheduler, "user", "batch-a", gate.asMono());
+        for (int i = 0; i < 3; i++) {
+            submit(scheduler, "user", "batch-a", recording(started, "a"));
+        }
+        submit(scheduler, "user", "batch-b", recording(started, "b"));
+        gate.tryEmitEmpty();
+
+        assertThat(started).containsExactly("a", "b", "a", "a");
+    }
+
+    @Test
+    void testHigherPriorityLaneIsServedFirstAndWeightsSplitTheRest() {
+        properties.getScheduling().setMaxInFlight(1);
+        BulkProcessingProperties.Tenant urgent = new BulkProcessingProperties.Tenant();
+        urgent.setPriority(BulkProcessingProperties.Priority.HIGH);
+        BulkProcessingProperties.Tenant heavy = new BulkProcessingProperties.Tenant();
+        heavy.setWeight(3);
+        properties.getScheduling().getTenants().put("urgent", urgent);
+        properties.getScheduling().getTenants().put("heavy", heavy);
+        TenantScheduler scheduler = new TenantScheduler(properties, meterRegistry);
+        Sinks.Empty<Void> gate = Sinks.empty();
+        List<String> started = new CopyOnWriteArrayList<>();
+
+        submit(scheduler, "light", "batch-light", gate.asMono());
+        for (int i = 0; i < 4; i++) {
+            submit(scheduler, "light", "batch-light", recording(started, "light"));
+            submit(scheduler, "heavy", "batch-heavy", recording(started, "heavy"));
+        }
+        submit(scheduler, "urgent", "batch-urgent", recording(started, "urgent"));
+        gate.tryEmitEmpty();
+
+        assertThat(started.get(0)).isEqualTo("urgent");
+        assertThat(started.subList(1, 5)).filteredOn("heavy"::equals).hasSizeGreaterThanOrEqualTo(3);
+    }
+
+    @Test
+    void testCancelledCallIsNeverStarted() {
+        properties.getScheduling().setMaxInFlight(1);
+        TenantScheduler scheduler = new TenantScheduler(properties, meterRegistry);
+        Sinks.Empty<Void> gate = Sinks.empty();
+        List<String> started = new CopyOnWriteArrayList<>();
+
+        submit(scheduler, "user", "batch", gate.asMono());
+        Disposable queued = submit(scheduler, "user", "batch", recording(started, "cancelled"));
+        submit(scheduler, "user", "batch", recording(started, "kept"));
+        queued.dispose();
+        gate.tryEmitEmpty();
+
+        assertThat(started).containsExactly("kept");
+    }
+
+    @Test
+    void testDisabledSchedulerRunsCallsDirectly() {
+        properties.getScheduling().setEnabled(false);
+        properties.getScheduling().setMaxInFlight(1);
+        TenantScheduler scheduler = new TenantScheduler(properties, meterRegistry);
+        AtomicInteger started = new AtomicInteger();
+
+        submit(scheduler, "user", "batch", Mono.never().doOnSubscribe(s -> started.incrementAndGet()));
+        submit(scheduler, "user", "batch", Mono.never().doOnSubscribe(s -> started.incrementAndGet()));
+
+        assertThat(started).hasValue(2);
+    }
+}
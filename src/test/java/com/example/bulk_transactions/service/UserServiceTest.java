@@ -5,6 +5,7 @@ import com.example.bulk_transactions.dto.auth.RegisterRequest;
 import com.example.bulk_transactions.exception.InvalidCredentialsException;
 import com.example.bulk_transactions.model.AppUser;
 import com.example.bulk_transactions.repository.UserRepository;
+import com.example.bulk_transactions.security.CustomerDetailsService;
 import com.example.bulk_transactions.security.JwtService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -21,6 +22,7 @@ class UserServiceTest {
     private UserRepository userRepository;
     private PasswordEncoder passwordEncoder;
     private JwtService jwtService;
+    private CustomerDetailsService customerDetailsService;
     private UserService userService;
 
     @BeforeEach
@@ -28,7 +30,8 @@ class UserServiceTest {
         userRepository = mock(UserRepository.class);
         passwordEncoder = mock(PasswordEncoder.class);
         jwtService = mock(JwtService.class);
-        userService = new UserService(userRepository, passwordEncoder, jwtService);
+        customerDetailsService = mock(CustomerDetailsService.class);
+        userService = new UserService(userRepository, passwordEncoder, jwtService, customerDetailsService);
     }
 
     @Test
@@ -50,6 +53,7 @@ class UserServiceTest {
         assertThat(savedUser.getUsername()).isEqualTo("john");
         assertThat(savedUser.getPassword()).isEqualTo("hashed");
         assertThat(savedUser.getRole()).isEqualTo("ROLE_USER");
+        verify(customerDetailsService).evict("john");
     }
 
     @Test
@@ -0,0 +1,139 @@
+package com.example.bulk_transactions.web;
+
+import com.example.bulk_transactions.config.BulkProcessingProperties;
+import com.example.bulk_transactions.exception.GlobalExceptionHandler;
+import com.example.bulk_transactions.exception.PayloadTooLargeException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.mvc.method.annotation.ExceptionHandlerExceptionResolver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestDecompressionFilterTest {
+
+    private final BulkProcessingProperties properties = new BulkProcessingProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private HttpServletRequest filter(MockHttpServletRequest request, MockHttpServletResponse response) throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        new RequestDecompressionFilter(properties, meterRegistry, exceptionResolver()).doFilter(request, response, chain);
+        return (HttpServletRequest) chain.getRequest();
+    }
+
+    private static HandlerExceptionResolver exceptionResolver() {
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.registerSingleton("globalExceptionHandler", GlobalExceptionHandler.class);
+        context.refresh();
+        ExceptionHandlerExceptionResolver resolver = new ExceptionHandlerExceptionResolver();
+        resolver.setMessageConverters(List.of(new MappingJackson2HttpMessageConverter(new ObjectMapper().findAndRegisterModules())));
+        resolver.setApplicationContext(context);
+        resolver.afterPropertiesSet();
+        return resolver;
+    }
+
+    private static MockHttpServletRequest compressed(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/bulk-transactions");
+        request.addHeader("Content-Encoding", "gzip");
+        request.setContent(out.toByteArray());
+        return request;
+    }
+
+    @Test
+    void testGzipBodyIsInflatedAndMeasured() throws Exception {
+        String json = "{\"batchId\":\"b1\",\"transactions\":[]}".repeat(100);
+
+        HttpServletRequest request = filter(compressed(json.getBytes(StandardCharsets.UTF_8)), new MockHttpServletResponse());
+
+        assertThat(request.getHeader("Content-Encoding")).isNull();
+        assertThat(request.getContentLengthLong()).isEqualTo(-1);
+        try (InputStream body = request.getInputStream()) {
+            assertThat(new String(body.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(json);
+        }
+        assertThat(meterRegistry.get("bulk.request.compression.ratio").summary().mean()).isGreaterThan(10);
+        assertThat(meterRegistry.get("bulk.request.decompression.time").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testCompressionBombIsRejectedByRatio() throws Exception {
+        properties.getRequestDecompression().setRatioCheckThreshold(DataSize.ofKilobytes(64));
+
+        HttpServletRequest request = filter(compressed(new byte[64 * 1024 * 1024]), new MockHttpServletResponse());
+
+        assertThatThrownBy(() -> request.getInputStream().readAllBytes())
+                .isInstanceOf(PayloadTooLargeException.class)
+                .hasMessageContaining("200 times");
+        assertThat(meterRegistry.get("bulk.request.decompression.rejected").tag("reason", "ratio").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void testBodyIsRejectedPastMaxSize() throws Exception {
+        properties.getRequestDecompression().setMaxSize(DataSize.ofKilobytes(1));
+
+        HttpServletRequest request = filter(compressed(new byte[4096]), new MockHttpServletResponse());
+
+        assertThatThrownBy(() -> request.getInputStream().readAllBytes())
+                .isInstanceOf(PayloadTooLargeException.class);
+        assertThat(meterRegistry.get("bulk.request.decompression.rejected").tag("reason", "size").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void testUnsupportedEncodingIsRejected() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/bulk-transactions");
+        request.addHeader("Content-Encoding", "br");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter(request, response);
+
+        assertThat(response.getStatus()).isEqualTo(415);
+        assertThat(response.getHeader("Accept-Encoding")).isEqualTo("gzip, deflate");
+        assertThat(response.getContentType()).startsWith("application/json");
+        JsonNode body = new ObjectMapper().readTree(response.getContentAsString());
+        assertThat(body.get("status").asInt()).isEqualTo(415);
+        assertThat(body.get("error").asText()).isEqualTo("Unsupported Media Type");
+        assertThat(body.get("message").asText()).isEqualTo("Unsupported Content-Encoding: br");
+        assertThat(body.has("timestamp")).isTrue();
+    }
+
+    @Test
+    void testMetersAreRegisteredOncePerEncoding() throws Exception {
+        RequestDecompressionFilter filter = new RequestDecompressionFilter(properties, meterRegistry, exceptionResolver());
+        assertThat(meterRegistry.get("bulk.request.decompression.time").tag("encoding", "deflate").timer().count()).isZero();
+        Timer gzipTime = meterRegistry.get("bulk.request.decompression.time").tag("encoding", "gzip").timer();
+
+        for (int i = 0; i < 2; i++) {
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(compressed("{}".getBytes(StandardCharsets.UTF_8)), new MockHttpServletResponse(), chain);
+            try (InputStream body = chain.getRequest().getInputStream()) {
+                body.readAllBytes();
+            }
+        }
+
+        assertThat(gzipTime.count()).isEqualTo(2);
+        assertThat(meterRegistry.find("bulk.request.decompression.time").timers()).hasSize(2);
+    }
+}